@@ -0,0 +1,106 @@
+package krik.java.bench;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BaselineComparator {
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private record Result(double score, String unit, Double allocatedBytes) {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineComparator <baseline.json> <results.json> [threshold percent]");
+            System.exit(2);
+        }
+
+        var baselinePath = Path.of(args[0]);
+        if (!Files.exists(baselinePath)) {
+            System.out.printf("No baseline at %s, run jmhSaveBaseline first.%n", baselinePath);
+            return;
+        }
+        var baseline = readResults(baselinePath);
+        var current = readResults(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        int regressions = 0;
+        for (var entry : current.entrySet()) {
+            var before = baseline.get(entry.getKey());
+            var after = entry.getValue();
+            if (before == null) {
+                System.out.printf("NEW    %s: %.3f %s%n", entry.getKey(), after.score(), after.unit());
+                continue;
+            }
+
+            double scoreChange = getChangePercent(before.score(), after.score());
+            boolean higherIsBetter = after.unit().endsWith("/s");
+            boolean isSlower = higherIsBetter ? scoreChange < -threshold : scoreChange > threshold;
+            boolean allocatesMore = before.allocatedBytes() != null && after.allocatedBytes() != null
+                    && getChangePercent(before.allocatedBytes(), after.allocatedBytes()) > threshold;
+
+            String status = isSlower || allocatesMore ? "REGRESS" : "ok";
+            if (isSlower || allocatesMore) {
+                regressions++;
+            }
+            System.out.printf(
+                    "%-7s %s: %.3f -> %.3f %s (%+.1f%%)%s%n",
+                    status,
+                    entry.getKey(),
+                    before.score(),
+                    after.score(),
+                    after.unit(),
+                    scoreChange,
+                    before.allocatedBytes() == null || after.allocatedBytes() == null ?
+                            "" :
+                            ", alloc %.0f -> %.0f B/op".formatted(before.allocatedBytes(), after.allocatedBytes())
+            );
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    private static double getChangePercent(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before * 100;
+    }
+
+    private static Map<String, Result> readResults(Path path) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        JsonArray runs = JsonParser.parseString(Files.readString(path)).getAsJsonArray();
+        for (JsonElement element : runs) {
+            var run = element.getAsJsonObject();
+            var primary = run.getAsJsonObject("primaryMetric");
+            var secondary = run.getAsJsonObject("secondaryMetrics");
+            Double allocatedBytes = secondary != null && secondary.has(ALLOCATION_METRIC) ?
+                    secondary.getAsJsonObject(ALLOCATION_METRIC).get("score").getAsDouble() :
+                    null;
+            results.put(
+                    getKey(run),
+                    new Result(primary.get("score").getAsDouble(), primary.get("scoreUnit").getAsString(), allocatedBytes)
+            );
+        }
+        return results;
+    }
+
+    private static String getKey(JsonObject run) {
+        var key = new StringBuilder(run.get("benchmark").getAsString());
+        if (run.has("params")) {
+            Map<String, String> params = new TreeMap<>();
+            run.getAsJsonObject("params").entrySet()
+                    .forEach(param -> params.put(param.getKey(), param.getValue().getAsString()));
+            key.append(params);
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package krik.java.pager;
+
+import krik.java.spotify_api.SpotifyService;
+import krik.java.viewer.BufferedTerminal;
+import krik.java.viewer.Template;
+import krik.java.viewer.Terminal;
+import krik.java.viewer.Viewer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PagerBenchmark {
+    private static final Template ALBUM_TEMPLATE = Template.compile("%s%n[%s]%n%s%n");
+    private static final Template PAGE_TEMPLATE = Template.compile("---PAGE %d OF %d---");
+
+    @Param({"terminal", "buffered"})
+    private String viewerType;
+
+    @Param({"5", "50"})
+    private int pageSize;
+
+    @Param({"1000"})
+    private int items;
+
+    private List<SpotifyService.Album> albums;
+    private Viewer viewer;
+
+    @Setup
+    public void setUp() {
+        albums = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            albums.add(new SpotifyService.Album(
+                    "album" + i,
+                    "Album " + i,
+                    "https://open.spotify.com/album/album" + i,
+                    new SpotifyService.Artist[] {
+                            new SpotifyService.Artist("artist" + i % 97, "Artist " + i % 97),
+                            new SpotifyService.Artist("artist" + i % 89, "Artist " + i % 89),
+                    }
+            ));
+        }
+
+        var output = new PrintStream(OutputStream.nullOutputStream());
+        viewer = viewerType.equals("buffered") ? new BufferedTerminal(output) : new Terminal(output);
+    }
+
+    @Benchmark
+    public void pageThroughAlbums() {
+        var artists = new StringBuilder();
+        var pager = new Pager<>(albums, pageSize, album -> {
+            artists.setLength(0);
+            for (var artist : album.artists()) {
+                if (!artists.isEmpty()) {
+                    artists.append(", ");
+                }
+                artists.append(artist.name());
+            }
+            viewer.showMessage(ALBUM_TEMPLATE, album.name(), artists, album.webUrl());
+        });
+
+        int totalPages = (items + pageSize - 1) / pageSize;
+        int[] turnedPages = {0};
+        pager.run(
+                () -> PageCommand.of(++turnedPages[0] < totalPages ? PageAction.NEXT : PageAction.EXIT),
+                (curPage, total) -> {
+                    viewer.showMessage(PAGE_TEMPLATE, curPage, total);
+                    viewer.flush();
+                },
+                (curPage, total) -> viewer.flush()
+        );
+    }
+}
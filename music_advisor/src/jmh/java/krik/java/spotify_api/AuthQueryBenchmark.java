@@ -0,0 +1,25 @@
+package krik.java.spotify_api;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthQueryBenchmark {
+    @Param({
+            "code=AQBx3nUq8Vf",
+            "state=xyz&scope=user-read-private&code=AQBx3nUq8Vf",
+            "error=access_denied&state=xyz"
+    })
+    private String query;
+
+    @Benchmark
+    public String findAuthorizationCode() {
+        return SpotifyAuth.findQueryParam(query, "code");
+    }
+}
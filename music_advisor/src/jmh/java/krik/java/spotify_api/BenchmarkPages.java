@@ -0,0 +1,57 @@
+package krik.java.spotify_api;
+
+final class BenchmarkPages {
+    private BenchmarkPages() {}
+
+    static String albumsPage(int offset, int limit, int total, String next) {
+        var page = new StringBuilder("{\"albums\":{\"items\":[");
+        for (int i = offset; i < Math.min(total, offset + limit); i++) {
+            if (i > offset) {
+                page.append(',');
+            }
+            page.append("""
+                    {"album_type":"album","id":"album%1$d","name":"Album %1$d",\
+                    "external_urls":{"spotify":"https://open.spotify.com/album/album%1$d"},\
+                    "images":[{"height":640,"url":"https://i.scdn.co/image/%1$d","width":640}],\
+                    "release_date":"2023-11-29","total_tracks":12,\
+                    "artists":[{"id":"artist%2$d","name":"Artist %2$d","type":"artist",\
+                    "external_urls":{"spotify":"https://open.spotify.com/artist/artist%2$d"}},\
+                    {"id":"artist%3$d","name":"Artist %3$d","type":"artist",\
+                    "external_urls":{"spotify":"https://open.spotify.com/artist/artist%3$d"}}]}"""
+                    .formatted(i, i % 97, i % 89 + 100));
+        }
+        return appendPaging(page, offset, limit, total, next);
+    }
+
+    static String playlistsPage(int offset, int limit, int total, String next) {
+        var page = new StringBuilder("{\"playlists\":{\"items\":[");
+        for (int i = offset; i < Math.min(total, offset + limit); i++) {
+            if (i > offset) {
+                page.append(',');
+            }
+            page.append("""
+                    {"collaborative":false,"description":"Playlist %1$d description","id":"playlist%1$d",\
+                    "name":"Playlist %1$d","external_urls":{"spotify":"https://open.spotify.com/playlist/playlist%1$d"},\
+                    "images":[{"height":null,"url":"https://i.scdn.co/image/p%1$d","width":null}],\
+                    "owner":{"display_name":"Spotify","id":"spotify"},"tracks":{"total":50}}"""
+                    .formatted(i));
+        }
+        return appendPaging(page, offset, limit, total, next);
+    }
+
+    private static String appendPaging(
+            StringBuilder page,
+            int offset,
+            int limit,
+            int total,
+            String next
+    )
+    {
+        page.append("],\"offset\":").append(offset)
+                .append(",\"limit\":").append(limit)
+                .append(",\"total\":").append(total)
+                .append(",\"next\":").append(next == null ? "null" : "\"" + next + "\"")
+                .append("}}");
+        return page.toString();
+    }
+}
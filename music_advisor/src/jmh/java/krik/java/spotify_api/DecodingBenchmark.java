@@ -0,0 +1,84 @@
+package krik.java.spotify_api;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodingBenchmark {
+    @Param({"20", "50"})
+    private int pageSize;
+
+    private String albumsPage;
+    private String playlistsPage;
+    private byte[] albumsPageBytes;
+    private byte[] playlistsPageBytes;
+
+    @Setup
+    public void setUp() {
+        albumsPage = BenchmarkPages.albumsPage(0, pageSize, pageSize * 10, null);
+        playlistsPage = BenchmarkPages.playlistsPage(0, pageSize, pageSize * 10, null);
+        albumsPageBytes = albumsPage.getBytes(StandardCharsets.UTF_8);
+        playlistsPageBytes = playlistsPage.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void albumsFromJsonObject(Blackhole blackhole) {
+        var items = JsonParser.parseString(albumsPage).getAsJsonObject()
+                .getAsJsonObject("albums")
+                .getAsJsonArray("items");
+        for (JsonElement item : items) {
+            blackhole.consume(SpotifyService.Album.fromJsonObject(item.getAsJsonObject()));
+        }
+    }
+
+    @Benchmark
+    public void albumsFromJsonReader(Blackhole blackhole) throws IOException {
+        blackhole.consume(decodePage(albumsPageBytes, "albums", SpotifyService.Album::fromJsonReader));
+    }
+
+    @Benchmark
+    public void playlistsFromJsonObject(Blackhole blackhole) {
+        var items = JsonParser.parseString(playlistsPage).getAsJsonObject()
+                .getAsJsonObject("playlists")
+                .getAsJsonArray("items");
+        for (JsonElement item : items) {
+            blackhole.consume(SpotifyService.Playlist.fromJsonObject(item.getAsJsonObject()));
+        }
+    }
+
+    @Benchmark
+    public void playlistsFromJsonReader(Blackhole blackhole) throws IOException {
+        blackhole.consume(decodePage(playlistsPageBytes, "playlists", SpotifyService.Playlist::fromJsonReader));
+    }
+
+    private static <E> Page<E> decodePage(byte[] body, String itemsName, JsonDecoder<E> itemDecoder)
+            throws IOException
+    {
+        var reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+        Page<E> page = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(itemsName)) {
+                page = Page.fromJsonReader(reader, itemDecoder);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return page;
+    }
+}
@@ -0,0 +1,76 @@
+package krik.java.spotify_api;
+
+import krik.java.simulator.SimulatorOptions;
+import krik.java.simulator.SpotifySimulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// measures fetching and decoding every new-releases page over loopback, including indexing the albums into
+// the search index and artist graph; the response cache is off and each iteration starts from a fresh service
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+    private static final int PAGE_LIMIT = 20;
+
+    @Param({"1", "10", "50"})
+    private int pages;
+
+    @Param({"0", "20"})
+    private int latencyMillis;
+
+    private SpotifySimulator simulator;
+    private SpotifyService spotifyService;
+
+    @Setup(Level.Trial)
+    public void startSimulator() {
+        simulator = new SpotifySimulator(new SimulatorOptions(
+                0,
+                pages * PAGE_LIMIT,
+                null,
+                null,
+                null,
+                latencyMillis,
+                null,
+                null,
+                null,
+                PAGE_LIMIT,
+                null,
+                null,
+                false,
+                null,
+                null
+        ));
+        simulator.start();
+    }
+
+    @Setup(Level.Iteration)
+    public void createService() {
+        var options = new ServiceOptions(8, 0, null, null, null, null, 1000, 0, null, null, null, null, null, null);
+        spotifyService = new SpotifyService(
+                "http://localhost:%d".formatted(simulator.getPort()),
+                new SpotifyAuth.AccessTokenInfo("benchmark", "Bearer", 3600, null),
+                options
+        );
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeService() {
+        spotifyService.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopSimulator() {
+        simulator.stop();
+    }
+
+    @Benchmark
+    public List<SpotifyService.Album> getNewReleases() {
+        return spotifyService.getNewReleases();
+    }
+}
@@ -1,53 +1,166 @@
 package krik.java;
 
+import krik.java.advisor.ArtistGraph;
+import krik.java.metrics.EndpointMetrics;
+import krik.java.metrics.MetricsRegistry;
 import krik.java.pager.PageAction;
+import krik.java.pager.PageCommand;
+import krik.java.pager.PagedSource;
 import krik.java.pager.Pager;
+import krik.java.search.SearchIndex;
+import krik.java.spotify_api.HttpTransport;
+import krik.java.spotify_api.ServiceOptions;
 import krik.java.spotify_api.SpotifyAuth;
 import krik.java.spotify_api.SpotifyService;
+import krik.java.viewer.Template;
 import krik.java.viewer.Viewer;
 
-import java.util.Arrays;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 public class Application {
     private static final int DEFAULT_PAGE_SIZE = 5;
+    private static final int DEFAULT_MAX_SESSIONS = 64;
+    static final String CATEGORY_ID_PREFIX = "id:";
+    static final String NO_ARTISTS_MESSAGE = "No releases are loaded yet, run new first.";
+    static final String NO_SIMILAR_ARTISTS_MESSAGE = "No similar artists.";
+    static final Template ALBUM_TEMPLATE = Template.compile("%s%n[%s]%n%s%n");
+    static final Template PLAYLIST_TEMPLATE = Template.compile("%s%n%s%n");
+    static final Template PAGE_TEMPLATE = Template.compile("---PAGE %d OF %d---");
+    private static final Template SEARCH_RESULT_TEMPLATE = Template.compile("%s (%s)%n%s%n");
+    private static final Template CATEGORY_PLAYLIST_TEMPLATE = Template.compile("%s%n%s%n[%s]%n");
+    private static final Template SYNC_SUMMARY_TEMPLATE = Template.compile("%d new releases, %d known in total.");
+    static final Template ADVICE_HEADER_TEMPLATE = Template.compile("Artists similar to %s:");
+    static final Template SIMILAR_ARTIST_TEMPLATE = Template.compile("%s%n[%d shared releases]%n%s%n");
+    static final int MAX_SIMILAR_ARTISTS = 20;
+    private static final Template CRAWL_SUMMARY_TEMPLATE = Template.compile("%d playlists in %d categories.");
+    private static final Template STATS_TEMPLATE = Template.compile(
+            "%s: requests %d, errors %d, retries %d, hedges %d, cache hits %d, coalesced %d, received %d KB%n" +
+            "  latency p50 %s ms, p95 %s ms, p99 %s ms, max %s ms; decode p50 %s ms, p99 %s ms"
+    );
 
     private final String accessLink;
     private final String resourceLink;
+    private final String credentialsPath;
     private final int pageSize;
+    private final ServiceOptions serviceOptions;
+    private final HttpTransport transport;
     private final Viewer viewer;
     private final Scanner scanner;
+    private final StringBuilder artistsBuffer = new StringBuilder();
 
-    public Application(String accessLink, String resourceLink, Integer pageSize, Viewer viewer, Scanner scanner) {
+    public Application(
+            String accessLink,
+            String resourceLink,
+            String credentialsPath,
+            Integer pageSize,
+            ServiceOptions serviceOptions,
+            Viewer viewer,
+            Scanner scanner
+    )
+    {
         this.accessLink = accessLink;
         this.resourceLink = resourceLink;
+        this.credentialsPath = credentialsPath;
         this.pageSize = pageSize == null ? DEFAULT_PAGE_SIZE : pageSize;
+        this.serviceOptions = serviceOptions;
+        this.transport = new HttpTransport(serviceOptions);
         this.viewer = viewer;
         this.scanner = scanner;
     }
 
+    int runBatch(List<String> commands, PrintStream output, PrintStream errors) {
+        var spotifyService = new SpotifyAuth(accessLink, credentialsPath, transport, errors::println)
+                .restoreSession()
+                .map(tokenManager -> new SpotifyService(resourceLink, tokenManager, serviceOptions, transport));
+        if (spotifyService.isEmpty()) {
+            errors.println("No stored credentials, run `auth` with -credentials in interactive mode first.");
+            return 2;
+        }
+        try (var service = spotifyService.get()) {
+            return new BatchRunner(service, output, errors).run(commands);
+        }
+    }
+
+    int runServer(String address, int port, Integer maxSessions) {
+        var spotifyService = new SpotifyAuth(accessLink, credentialsPath, transport, System.err::println)
+                .restoreSession()
+                .map(tokenManager -> new SpotifyService(resourceLink, tokenManager, serviceOptions, transport));
+        if (spotifyService.isEmpty()) {
+            System.err.println("No stored credentials, run `auth` with -credentials in interactive mode first.");
+            return 2;
+        }
+        var socketAddress = address == null ?
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port) :
+                new InetSocketAddress(address, port);
+        var service = spotifyService.get();
+        var server = new SessionServer(
+                socketAddress,
+                service,
+                pageSize,
+                maxSessions == null ? DEFAULT_MAX_SESSIONS : maxSessions
+        );
+        // the server runs until the process is killed, so flush the disk cache and seen ids on the way out
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            service.close();
+            transport.close();
+        }, "session-server-shutdown"));
+        server.start();
+        System.out.printf("Listening on %s%n", server.getAddress());
+        System.out.printf("Session token: %s%n", server.getToken());
+        return 0;
+    }
+
     void run() {
         SpotifyAuth spotifyAuth = new SpotifyAuth(
                 accessLink,
-                (authLink) -> viewer.showMessage("use this link to request the access code:%n%s", authLink)
+                credentialsPath,
+                transport,
+                (authLink) -> {
+                    viewer.showMessage("use this link to request the access code:%n%s", authLink);
+                    viewer.flush();
+                }
         );
-        SpotifyService spotifyService = null;
+        SpotifyService spotifyService = spotifyAuth.restoreSession()
+                .map(tokenManager -> new SpotifyService(resourceLink, tokenManager, serviceOptions, transport))
+                .orElse(null);
+        if (spotifyService != null) {
+            prefetch(spotifyService);
+        }
 
         while (true) {
-            var cmd = scanner.next();
+            var cmd = nextToken();
 
             switch (cmd) {
                 case "auth" -> {
-                    var accessTokenInfo = spotifyAuth.getAccessTokenInfo();
-                    spotifyService = new SpotifyService(resourceLink, accessTokenInfo);
+                    var tokenManager = spotifyAuth.authorize();
+                    if (spotifyService != null) {
+                        spotifyService.close();
+                    }
+                    spotifyService = new SpotifyService(resourceLink, tokenManager, serviceOptions, transport);
+                    prefetch(spotifyService);
                     viewer.showMessage("Success!");
                     continue;
                 }
+                case "stats" -> {
+                    showStats();
+                    continue;
+                }
                 case "exit" -> {
+                    if (spotifyService != null) {
+                        spotifyService.close();
+                    }
+                    viewer.flush();
                     return;
                 }
             }
@@ -59,33 +172,69 @@ public class Application {
 
             try {
                 switch (cmd) {
-                    case "new" -> runPager(
-                            spotifyService.getNewReleases(),
-                            (album) -> {
-                                String artists = Arrays.stream(album.artists())
-                                        .map(SpotifyService.Artist::name)
-                                        .collect(Collectors.joining(", "));
-                                viewer.showMessage("%s%n[%s]%n%s%n", album.name(), artists, album.webUrl());
-                            }
-                    );
+                    case "new" -> runPager(spotifyService.getNewReleasesSource(), this::showAlbum);
                     case "featured" -> runPager(
-                            spotifyService.getFeatured(),
-                            (playlist) -> viewer.showMessage("%s%n%s%n", playlist.name(), playlist.webUrl())
+                            spotifyService.getFeaturedSource(),
+                            (playlist) -> viewer.showMessage(PLAYLIST_TEMPLATE, playlist.name(), playlist.webUrl())
                     );
                     case "categories" -> runPager(
-                            spotifyService.getTopCategories(),
+                            spotifyService.getTopCategoriesSource(),
                             (category) -> viewer.showMessage(category.name())
                     );
                     case "playlists" -> {
                         var categoryName = scanner.nextLine().strip();
-                        spotifyService.getCategoryPlaylists(categoryName).ifPresentOrElse(
+                        var playlistsSource = categoryName.startsWith(CATEGORY_ID_PREFIX) ?
+                                Optional.of(spotifyService.getCategoryPlaylistsSourceById(
+                                        categoryName.substring(CATEGORY_ID_PREFIX.length())
+                                )) :
+                                spotifyService.getCategoryPlaylistsSource(categoryName);
+                        playlistsSource.ifPresentOrElse(
                                 playlists -> runPager(
                                         playlists,
-                                        (playlist -> viewer.showMessage("%s%n%s%n", playlist.name(), playlist.webUrl()))
+                                        (playlist -> viewer.showMessage(PLAYLIST_TEMPLATE, playlist.name(), playlist.webUrl()))
                                 ),
                                 () -> viewer.showMessage("Unknown category name.")
                         );
                     }
+                    case "all-playlists" -> showAllCategoryPlaylists(spotifyService);
+                    case "new-sync" -> {
+                        var sync = spotifyService.syncNewReleases();
+                        viewer.showMessage(SYNC_SUMMARY_TEMPLATE, sync.added().size(), sync.albums().size());
+                        if (!sync.added().isEmpty()) {
+                            runPager(PagedSource.of(sync.added()), this::showAlbum);
+                        }
+                    }
+                    case "search" -> {
+                        var query = scanner.nextLine().strip();
+                        var results = spotifyService.search(query);
+                        if (results.isEmpty()) {
+                            viewer.showMessage(spotifyService.getSearchIndexSize() == 0 ?
+                                    "Nothing is indexed yet, browse some listings first." :
+                                    "Nothing found.");
+                            // the query line is already read, only a pager leaves the rest of a line behind
+                            continue;
+                        } else {
+                            runPager(PagedSource.of(results), document -> showSearchResult(viewer, document));
+                        }
+                    }
+                    case "advise" -> {
+                        var artistName = scanner.nextLine().strip();
+                        var advice = spotifyService.advise(artistName, MAX_SIMILAR_ARTISTS);
+                        if (advice.isPresent()) {
+                            viewer.showMessage(ADVICE_HEADER_TEMPLATE, advice.get().artist().name());
+                            if (advice.get().similarArtists().isEmpty()) {
+                                viewer.showMessage(NO_SIMILAR_ARTISTS_MESSAGE);
+                                continue;
+                            }
+                            runPager(PagedSource.of(advice.get().similarArtists()), artist -> showSimilarArtist(viewer, artist));
+                        } else {
+                            viewer.showMessage(spotifyService.getArtistGraphSize() == 0 ?
+                                    NO_ARTISTS_MESSAGE :
+                                    "Unknown artist name.");
+                            // the artist line is already read, only a pager leaves the rest of a line behind
+                            continue;
+                        }
+                    }
                     default -> viewer.showMessage("Unknown command %s", cmd);
                 }
             } catch (SpotifyService.ResponseError e) {
@@ -95,26 +244,118 @@ public class Application {
         }
     }
 
-    private <E> void runPager(List<E> items, Consumer<E> pageItemConsumer) {
+    private void showAlbum(SpotifyService.Album album) {
+        viewer.showMessage(ALBUM_TEMPLATE, album.name(), joinArtistNames(artistsBuffer, album.artists()), album.webUrl());
+    }
+
+    static void showSimilarArtist(Viewer viewer, ArtistGraph.Recommendation artist) {
+        viewer.showMessage(
+                SIMILAR_ARTIST_TEMPLATE,
+                artist.artistName(),
+                artist.sharedAlbums(),
+                SpotifyService.getArtistWebUrl(artist.artistId())
+        );
+    }
+
+    static void showSearchResult(Viewer viewer, SearchIndex.Document document) {
+        if (document.kind() == SearchIndex.Kind.ALBUM) {
+            viewer.showMessage(ALBUM_TEMPLATE, document.title(), document.subtitle(), SpotifyService.getWebUrl(document));
+        } else {
+            viewer.showMessage(
+                    SEARCH_RESULT_TEMPLATE,
+                    document.title(),
+                    document.kind().name().toLowerCase(Locale.ROOT),
+                    SpotifyService.getWebUrl(document)
+            );
+        }
+    }
+
+    private void showAllCategoryPlaylists(SpotifyService spotifyService) {
+        Set<String> categoryIds = new HashSet<>();
+        int[] playlistCount = {0};
+        spotifyService.getAllCategoryPlaylists((category, playlists) -> {
+            categoryIds.add(category.id());
+            playlistCount[0] += playlists.size();
+            for (var playlist : playlists) {
+                viewer.showMessage(CATEGORY_PLAYLIST_TEMPLATE, playlist.name(), playlist.webUrl(), category.name());
+            }
+            viewer.flush();
+        });
+        viewer.showMessage(CRAWL_SUMMARY_TEMPLATE, playlistCount[0], categoryIds.size());
+    }
+
+    private static void prefetch(SpotifyService spotifyService) {
+        spotifyService.getFeaturedAsync().exceptionally(e -> null);
+        spotifyService.getTopCategoriesAsync().exceptionally(e -> null);
+    }
+
+    private <E> void runPager(PagedSource<E> items, Consumer<E> pageItemConsumer) {
         Pager<E> pager = new Pager<>(items, pageSize, pageItemConsumer);
         pager.run(
-                getPageActionSupplier(),
-                (curPage, totalPages) -> viewer.showMessage("---PAGE %d OF %d---", curPage, totalPages),
+                getPageCommandSupplier(),
+                (curPage, totalPages) -> viewer.showMessage(PAGE_TEMPLATE, curPage, totalPages),
                 (curPage, totalPages) -> viewer.showMessage("No more pages.")
         );
     }
 
-    private Supplier<PageAction> getPageActionSupplier() {
+    private Supplier<PageCommand> getPageCommandSupplier() {
         return () -> {
-            var cmd = scanner.next();
             while (true) {
+                var cmd = nextToken();
                 try {
-                    return PageAction.valueOf(cmd.toUpperCase());
+                    var action = PageAction.valueOf(cmd.toUpperCase());
+                    return PageCommand.parse(cmd, action.hasArgument() ? nextToken() : null);
                 } catch (IllegalArgumentException e) {
                     viewer.showMessage("Unknown page command");
-                    cmd = scanner.next();
                 }
             }
         };
     }
+
+    private void showStats() {
+        List<EndpointMetrics> endpoints = MetricsRegistry.getDefault().getEndpoints();
+        if (endpoints.isEmpty()) {
+            viewer.showMessage("No requests yet.");
+            return;
+        }
+        for (var endpoint : endpoints) {
+            viewer.showMessage(
+                    STATS_TEMPLATE,
+                    endpoint.getName(),
+                    endpoint.getRequests(),
+                    endpoint.getErrors(),
+                    endpoint.getRetries(),
+                    endpoint.getHedges(),
+                    endpoint.getCacheHits(),
+                    endpoint.getCoalesced(),
+                    endpoint.getBytesReceived() / 1024,
+                    formatMillis(endpoint.getLatencyP50Millis()),
+                    formatMillis(endpoint.getLatencyP95Millis()),
+                    formatMillis(endpoint.getLatencyP99Millis()),
+                    formatMillis(endpoint.getLatencyMaxMillis()),
+                    formatMillis(endpoint.getDecodeP50Millis()),
+                    formatMillis(endpoint.getDecodeP99Millis())
+            );
+        }
+    }
+
+    private static String formatMillis(double millis) {
+        return "%.1f".formatted(millis);
+    }
+
+    private String nextToken() {
+        viewer.flush();
+        return scanner.next();
+    }
+
+    static CharSequence joinArtistNames(StringBuilder buffer, SpotifyService.Artist[] artists) {
+        buffer.setLength(0);
+        for (int i = 0; i < artists.length; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(artists[i].name());
+        }
+        return buffer;
+    }
 }
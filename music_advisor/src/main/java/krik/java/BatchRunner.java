@@ -0,0 +1,99 @@
+package krik.java;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import krik.java.spotify_api.SpotifyService;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class BatchRunner {
+    private static final String PLAYLISTS_COMMAND_PREFIX = "playlists:";
+    private static final String CATEGORY_ID_PREFIX = "id:";
+    private static final String ADVISE_COMMAND_PREFIX = "advise:";
+    private static final int MAX_SIMILAR_ARTISTS = 20;
+
+    private final SpotifyService spotifyService;
+    private final PrintStream output;
+    private final PrintStream errors;
+    private final Gson gson = new Gson();
+    private final StringBuilder pageBuffer = new StringBuilder();
+
+    public BatchRunner(SpotifyService spotifyService, PrintStream output, PrintStream errors) {
+        this.spotifyService = spotifyService;
+        this.output = output;
+        this.errors = errors;
+    }
+
+    public int run(List<String> commands) {
+        int exitCode = 0;
+        for (var cmd : commands) {
+            try {
+                if (!runCommand(cmd)) {
+                    errors.printf("Unknown command %s%n", cmd);
+                    exitCode = 2;
+                }
+            } catch (RuntimeException e) {
+                errors.printf("Command %s failed: %s%n", cmd, e.getMessage());
+                exitCode = Math.max(exitCode, 1);
+            }
+        }
+        output.flush();
+        return exitCode;
+    }
+
+    private boolean runCommand(String cmd) {
+        switch (cmd) {
+            case "new" -> spotifyService.getNewReleases(writePage(cmd));
+            case "new-sync" -> writePage(cmd, null, spotifyService.syncNewReleases().added());
+            case "featured" -> spotifyService.getFeatured(writePage(cmd));
+            case "categories" -> spotifyService.getTopCategories(writePage(cmd));
+            case "all-playlists" -> spotifyService.getAllCategoryPlaylists(
+                    (category, playlists) -> writePage(cmd, category.id(), playlists)
+            );
+            default -> {
+                if (cmd.startsWith(ADVISE_COMMAND_PREFIX)) {
+                    var artistName = cmd.substring(ADVISE_COMMAND_PREFIX.length());
+                    var advice = spotifyService.advise(artistName, MAX_SIMILAR_ARTISTS)
+                            .orElseThrow(() -> new IllegalArgumentException(spotifyService.getArtistGraphSize() == 0 ?
+                                    "No releases are loaded yet, run new or new-sync first." :
+                                    "Unknown artist name."));
+                    writePage(cmd, null, advice.similarArtists());
+                    return true;
+                }
+                if (!cmd.startsWith(PLAYLISTS_COMMAND_PREFIX)) {
+                    return false;
+                }
+                var categoryName = cmd.substring(PLAYLISTS_COMMAND_PREFIX.length());
+                var categoryId = categoryName.startsWith(CATEGORY_ID_PREFIX) ?
+                        categoryName.substring(CATEGORY_ID_PREFIX.length()) :
+                        spotifyService.findCategory(categoryName)
+                                .map(SpotifyService.Category::id)
+                                .orElseThrow(() -> new IllegalArgumentException("Unknown category name."));
+                spotifyService.getCategoryPlaylistsById(categoryId, writePage(cmd));
+            }
+        }
+        return true;
+    }
+
+    private <E> Consumer<List<E>> writePage(String cmd) {
+        return items -> writePage(cmd, null, items);
+    }
+
+    private <E> void writePage(String cmd, String categoryId, List<E> items) {
+        pageBuffer.setLength(0);
+        for (var item : items) {
+            JsonObject line = new JsonObject();
+            line.addProperty("command", cmd);
+            if (categoryId != null) {
+                line.addProperty("categoryId", categoryId);
+            }
+            gson.toJsonTree(item).getAsJsonObject().entrySet()
+                    .forEach(field -> line.add(field.getKey(), field.getValue()));
+            pageBuffer.append(gson.toJson(line)).append('\n');
+        }
+        output.append(pageBuffer);
+        output.flush();
+    }
+}
@@ -1,22 +1,42 @@
 package krik.java;
 
-import krik.java.viewer.Terminal;
+import krik.java.spotify_api.ServiceOptions;
+import krik.java.viewer.BufferedTerminal;
 import krik.java.viewer.Viewer;
 
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Scanner;
 
 public class Main {
     public static void main(String[] args) {
-        Viewer viewer = new Terminal(System.out);
+        Viewer viewer = new BufferedTerminal(System.out);
         var scanner = new Scanner(System.in);
         var app = new Application(
                 getAccessParamValue(args),
                 getResourceParamValue(args),
+                getParamValue(args, "-credentials"),
                 getPageParamValue(args),
+                getServiceOptions(args),
                 viewer,
                 scanner
         );
+        var batchCommands = getParamValue(args, "-batch");
+        if (batchCommands != null) {
+            System.exit(app.runBatch(Arrays.asList(batchCommands.split(",")), System.out, System.err));
+        }
+        var serverPort = getIntegerParamValue(args, "-server");
+        if (serverPort != null) {
+            int exitCode = app.runServer(
+                    getParamValue(args, "-server-address"),
+                    serverPort,
+                    getIntegerParamValue(args, "-max-sessions")
+            );
+            if (exitCode != 0) {
+                System.exit(exitCode);
+            }
+            return;
+        }
         app.run();
     }
 
@@ -29,8 +49,36 @@ public class Main {
     }
 
     private static Integer getPageParamValue(String[] args) {
-        var page = getParamValue(args, "-page");
-        return page == null ? null : Integer.valueOf(page);
+        return getIntegerParamValue(args, "-page");
+    }
+
+    private static ServiceOptions getServiceOptions(String[] args) {
+        return new ServiceOptions(
+                getIntegerParamValue(args, "-concurrency"),
+                getIntegerParamValue(args, "-cache-size"),
+                getIntegerParamValue(args, "-cache-ttl"),
+                getParamValue(args, "-disk-cache"),
+                getIntegerParamValue(args, "-disk-cache-size"),
+                getIntegerParamValue(args, "-category-ttl"),
+                getIntegerParamValue(args, "-rate-limit"),
+                getIntegerParamValue(args, "-max-retries"),
+                getIntegerParamValue(args, "-crawl-parallelism"),
+                getIntegerParamValue(args, "-connect-timeout"),
+                getIntegerParamValue(args, "-request-timeout"),
+                getBooleanParamValue(args, "-compression"),
+                getIntegerParamValue(args, "-hedge-budget"),
+                getIntegerParamValue(args, "-hedge-delay")
+        );
+    }
+
+    private static Boolean getBooleanParamValue(String[] args, String paramName) {
+        var value = getParamValue(args, paramName);
+        return value == null ? null : Boolean.valueOf(value);
+    }
+
+    private static Integer getIntegerParamValue(String[] args, String paramName) {
+        var value = getParamValue(args, paramName);
+        return value == null ? null : Integer.valueOf(value);
     }
 
     private static String getParamValue(String[] args, String paramName) {
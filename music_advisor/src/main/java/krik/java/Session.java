@@ -0,0 +1,140 @@
+package krik.java;
+
+import krik.java.pager.PageAction;
+import krik.java.pager.PageCommand;
+import krik.java.pager.PagedSource;
+import krik.java.pager.Pager;
+import krik.java.spotify_api.SpotifyService;
+import krik.java.viewer.TextBuffer;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+class Session {
+    private final SpotifyService spotifyService;
+    private final int pageSize;
+    private final TextBuffer viewer = new TextBuffer();
+    private final StringBuilder artistsBuffer = new StringBuilder();
+    private Pager<?> pager = null;
+    private volatile long lastAccessMillis = System.currentTimeMillis();
+
+    Session(SpotifyService spotifyService, int pageSize) {
+        this.spotifyService = spotifyService;
+        this.pageSize = pageSize;
+    }
+
+    long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    synchronized String handle(String commandLine) {
+        lastAccessMillis = System.currentTimeMillis();
+        var parts = commandLine.strip().split("\\s+", 2);
+        var cmd = parts[0];
+        var argument = parts.length > 1 ? parts[1] : "";
+
+        String output;
+        try {
+            switch (cmd) {
+                case "new" -> startPager(
+                        spotifyService.getNewReleasesSource(),
+                        (album) -> viewer.showMessage(
+                                Application.ALBUM_TEMPLATE,
+                                album.name(),
+                                Application.joinArtistNames(artistsBuffer, album.artists()),
+                                album.webUrl()
+                        )
+                );
+                case "featured" -> startPager(
+                        spotifyService.getFeaturedSource(),
+                        (playlist) -> viewer.showMessage(Application.PLAYLIST_TEMPLATE, playlist.name(), playlist.webUrl())
+                );
+                case "categories" -> startPager(
+                        spotifyService.getTopCategoriesSource(),
+                        (category) -> viewer.showMessage(category.name())
+                );
+                case "playlists" -> {
+                    var playlistsSource = argument.startsWith(Application.CATEGORY_ID_PREFIX) ?
+                            Optional.of(spotifyService.getCategoryPlaylistsSourceById(
+                                    argument.substring(Application.CATEGORY_ID_PREFIX.length())
+                            )) :
+                            spotifyService.getCategoryPlaylistsSource(argument);
+                    playlistsSource.ifPresentOrElse(
+                            playlists -> startPager(
+                                    playlists,
+                                    (playlist -> viewer.showMessage(
+                                            Application.PLAYLIST_TEMPLATE,
+                                            playlist.name(),
+                                            playlist.webUrl()
+                                    ))
+                            ),
+                            () -> viewer.showMessage("Unknown category name.")
+                    );
+                }
+                case "search" -> {
+                    var results = spotifyService.search(argument);
+                    if (results.isEmpty()) {
+                        viewer.showMessage("Nothing found.");
+                    } else {
+                        startPager(PagedSource.of(results), document -> Application.showSearchResult(viewer, document));
+                    }
+                }
+                case "advise" -> spotifyService.advise(argument, Application.MAX_SIMILAR_ARTISTS).ifPresentOrElse(
+                        advice -> {
+                            viewer.showMessage(Application.ADVICE_HEADER_TEMPLATE, advice.artist().name());
+                            if (advice.similarArtists().isEmpty()) {
+                                viewer.showMessage(Application.NO_SIMILAR_ARTISTS_MESSAGE);
+                            } else {
+                                startPager(
+                                        PagedSource.of(advice.similarArtists()),
+                                        artist -> Application.showSimilarArtist(viewer, artist)
+                                );
+                            }
+                        },
+                        () -> viewer.showMessage(spotifyService.getArtistGraphSize() == 0 ?
+                                Application.NO_ARTISTS_MESSAGE :
+                                "Unknown artist name.")
+                );
+                case "next", "prev", "first", "last", "page", "size", "exit" -> turnPage(cmd, argument);
+                default -> viewer.showMessage("Unknown command %s", cmd);
+            }
+        } catch (SpotifyService.ResponseError e) {
+            viewer.showMessage(e.getMessage());
+        } finally {
+            // take the text even when the command fails, so it doesn't leak into the next response
+            output = viewer.takeText();
+        }
+        return output;
+    }
+
+    private <E> void startPager(PagedSource<E> items, Consumer<E> pageItemConsumer) {
+        var newPager = new Pager<>(items, pageSize, pageItemConsumer);
+        newPager.displayPage();
+        pager = newPager;
+        viewer.showMessage(Application.PAGE_TEMPLATE, pager.getCurrentPage(), pager.getTotalPages());
+    }
+
+    private void turnPage(String cmd, String argument) {
+        if (pager == null) {
+            viewer.showMessage("Nothing to page through.");
+            return;
+        }
+        PageCommand command;
+        try {
+            command = PageCommand.parse(cmd, argument);
+        } catch (IllegalArgumentException e) {
+            viewer.showMessage("Unknown page command");
+            return;
+        }
+        if (command.action() == PageAction.EXIT) {
+            pager = null;
+            return;
+        }
+        if (pager.turnPage(command)) {
+            pager.displayPage();
+            viewer.showMessage(Application.PAGE_TEMPLATE, pager.getCurrentPage(), pager.getTotalPages());
+        } else {
+            viewer.showMessage("No more pages.");
+        }
+    }
+}
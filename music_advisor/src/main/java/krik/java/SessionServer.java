@@ -0,0 +1,173 @@
+package krik.java;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import krik.java.spotify_api.SpotifyService;
+import krik.java.spotify_api.TaskExecutors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+class SessionServer {
+    private static final String SESSIONS_PATH = "/sessions";
+    private static final long SESSION_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final long EXPIRATION_CHECK_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final String AUTHORIZATION_SCHEME = "Bearer ";
+    private static final int TOKEN_BYTES = 32;
+
+    private final SpotifyService spotifyService;
+    private final int pageSize;
+    private final int maxSessions;
+    private final String token;
+    private final HttpServer server;
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService expirationTimer;
+
+    SessionServer(InetSocketAddress address, SpotifyService spotifyService, int pageSize, int maxSessions) {
+        this.spotifyService = spotifyService;
+        this.pageSize = pageSize;
+        this.maxSessions = maxSessions;
+        this.token = newToken();
+        try {
+            this.server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.server.createContext(SESSIONS_PATH, this::handle);
+        this.server.setExecutor(TaskExecutors.newPerTaskExecutor("session-server"));
+        this.expirationTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "session-expiration");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        server.start();
+        expirationTimer.scheduleAtFixedRate(
+                this::expireIdleSessions,
+                EXPIRATION_CHECK_PERIOD_MILLIS,
+                EXPIRATION_CHECK_PERIOD_MILLIS,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    // clients send it as "Authorization: Bearer <token>" with every request
+    String getToken() {
+        return token;
+    }
+
+    void stop() {
+        expirationTimer.shutdownNow();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!isAuthorized(exchange)) {
+                exchange.getResponseHeaders().add("WWW-Authenticate", "Bearer");
+                send(exchange, 401, "Missing or wrong session server token.");
+                return;
+            }
+            var path = exchange.getRequestURI().getPath();
+            var method = exchange.getRequestMethod();
+            if (path.equals(SESSIONS_PATH) || path.equals(SESSIONS_PATH + "/")) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, "Use POST to start a session.");
+                    return;
+                }
+                var sessionId = startSession();
+                if (sessionId == null) {
+                    send(exchange, 503, "Too many sessions, end one with DELETE first.");
+                    return;
+                }
+                send(exchange, 201, sessionId);
+                return;
+            }
+
+            var sessionId = path.substring(SESSIONS_PATH.length() + 1);
+            var session = sessions.get(sessionId);
+            if (session == null) {
+                send(exchange, 404, "Unknown session %s".formatted(sessionId));
+                return;
+            }
+
+            switch (method) {
+                case "POST" -> {
+                    var command = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                    String output;
+                    try {
+                        output = session.handle(command);
+                    } catch (RuntimeException e) {
+                        System.err.printf("Command %s failed: %s%n", command, e.getMessage());
+                        send(exchange, 502, "Command failed: %s".formatted(e.getMessage()));
+                        return;
+                    }
+                    send(exchange, 200, output);
+                }
+                case "DELETE" -> {
+                    sessions.remove(sessionId);
+                    send(exchange, 204, null);
+                }
+                default -> send(exchange, 405, "Use POST to run a command or DELETE to end the session.");
+            }
+        }
+    }
+
+    private synchronized String startSession() {
+        if (sessions.size() >= maxSessions) {
+            return null;
+        }
+        var sessionId = UUID.randomUUID().toString();
+        sessions.put(sessionId, new Session(spotifyService, pageSize));
+        return sessionId;
+    }
+
+    private boolean isAuthorized(HttpExchange exchange) {
+        var authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith(AUTHORIZATION_SCHEME)) {
+            return false;
+        }
+        return MessageDigest.isEqual(
+                authorization.substring(AUTHORIZATION_SCHEME.length()).getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    private static String newToken() {
+        var bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private void expireIdleSessions() {
+        long expiredBefore = System.currentTimeMillis() - SESSION_IDLE_TIMEOUT_MILLIS;
+        sessions.values().removeIf(session -> session.getLastAccessMillis() < expiredBefore);
+    }
+
+    private static void send(HttpExchange exchange, int code, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(code, -1);
+            return;
+        }
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
@@ -0,0 +1,274 @@
+package krik.java.advisor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class ArtistGraph {
+    public record Recommendation(String artistId, String artistName, int sharedAlbums) {}
+
+    private static int mix(int hash) {
+        hash *= 0x9e3779b9;
+        return hash ^ hash >>> 16;
+    }
+
+    private static class IdTable {
+        private String[] keys = new String[16];
+        private int[] ids = new int[16];
+        private int size = 0;
+
+        int get(String key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key.hashCode()) & mask; keys[slot] != null; slot = slot + 1 & mask) {
+                if (keys[slot].equals(key)) {
+                    return ids[slot];
+                }
+            }
+            return -1;
+        }
+
+        int intern(String key) {
+            int mask = keys.length - 1;
+            int slot = mix(key.hashCode()) & mask;
+            for (; keys[slot] != null; slot = slot + 1 & mask) {
+                if (keys[slot].equals(key)) {
+                    return ids[slot];
+                }
+            }
+            keys[slot] = key;
+            ids[slot] = size;
+            if (++size * 4 > keys.length * 3) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        private void grow() {
+            var oldKeys = keys;
+            var oldIds = ids;
+            keys = new String[oldKeys.length * 2];
+            ids = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int slot = mix(oldKeys[i].hashCode()) & mask;
+                    while (keys[slot] != null) {
+                        slot = slot + 1 & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+    }
+
+    private static class Neighbors {
+        // artist id plus one, zero marks an empty slot
+        private int[] artists = new int[4];
+        private int[] weights = new int[4];
+        private int size = 0;
+
+        boolean increment(int artist) {
+            int mask = artists.length - 1;
+            int slot = mix(artist) & mask;
+            for (; artists[slot] != 0; slot = slot + 1 & mask) {
+                if (artists[slot] == artist + 1) {
+                    weights[slot]++;
+                    return false;
+                }
+            }
+            artists[slot] = artist + 1;
+            weights[slot] = 1;
+            if (++size * 4 > artists.length * 3) {
+                grow();
+            }
+            return true;
+        }
+
+        private void grow() {
+            var oldArtists = artists;
+            var oldWeights = weights;
+            artists = new int[oldArtists.length * 2];
+            weights = new int[oldArtists.length * 2];
+            int mask = artists.length - 1;
+            for (int i = 0; i < oldArtists.length; i++) {
+                if (oldArtists[i] != 0) {
+                    int slot = mix(oldArtists[i] - 1) & mask;
+                    while (artists[slot] != 0) {
+                        slot = slot + 1 & mask;
+                    }
+                    artists[slot] = oldArtists[i];
+                    weights[slot] = oldWeights[i];
+                }
+            }
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IdTable artistIds = new IdTable();
+    private final IdTable albumIds = new IdTable();
+    private String[] artistKeys = new String[16];
+    private String[] artistNames = new String[16];
+    private Neighbors[] neighbors = new Neighbors[16];
+    private int artistCount = 0;
+    private long edgeCount = 0;
+
+    public void addAlbum(String albumId, String[] albumArtistIds, String[] albumArtistNames) {
+        if (albumId == null || albumArtistIds.length == 0) {
+            return;
+        }
+        int[] artists = new int[albumArtistIds.length];
+
+        lock.writeLock().lock();
+        try {
+            int albumCount = albumIds.size;
+            if (albumIds.intern(albumId) < albumCount) {
+                return;
+            }
+            int artistsSize = 0;
+            for (int i = 0; i < albumArtistIds.length; i++) {
+                if (albumArtistIds[i] != null) {
+                    artists[artistsSize++] = internArtist(albumArtistIds[i], albumArtistNames[i]);
+                }
+            }
+            for (int i = 0; i < artistsSize; i++) {
+                for (int j = i + 1; j < artistsSize; j++) {
+                    if (artists[i] == artists[j]) {
+                        continue;
+                    }
+                    boolean isNewEdge = neighbors[artists[i]].increment(artists[j]);
+                    neighbors[artists[j]].increment(artists[i]);
+                    if (isNewEdge) {
+                        edgeCount++;
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Recommendation> getSimilarArtists(String artistId, int limit) {
+        lock.readLock().lock();
+        try {
+            int artist = artistIds.get(artistId);
+            if (artist < 0 || limit <= 0) {
+                return List.of();
+            }
+
+            // min-heap of the best candidates so far, the weakest one sits at the root
+            var candidates = neighbors[artist];
+            int[] heapArtists = new int[Math.min(limit, candidates.size)];
+            int[] heapWeights = new int[heapArtists.length];
+            int heapSize = 0;
+            for (int slot = 0; slot < candidates.artists.length; slot++) {
+                if (candidates.artists[slot] == 0) {
+                    continue;
+                }
+                int candidate = candidates.artists[slot] - 1;
+                int weight = candidates.weights[slot];
+                if (heapSize < heapArtists.length) {
+                    heapArtists[heapSize] = candidate;
+                    heapWeights[heapSize] = weight;
+                    siftUp(heapArtists, heapWeights, heapSize++);
+                } else if (isStronger(weight, candidate, heapWeights[0], heapArtists[0])) {
+                    heapArtists[0] = candidate;
+                    heapWeights[0] = weight;
+                    siftDown(heapArtists, heapWeights, heapSize);
+                }
+            }
+
+            var result = new Recommendation[heapSize];
+            while (heapSize > 0) {
+                int weakest = heapArtists[0];
+                result[heapSize - 1] = new Recommendation(artistKeys[weakest], artistNames[weakest], heapWeights[0]);
+                heapSize--;
+                heapArtists[0] = heapArtists[heapSize];
+                heapWeights[0] = heapWeights[heapSize];
+                siftDown(heapArtists, heapWeights, heapSize);
+            }
+            return List.of(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getArtistCount() {
+        lock.readLock().lock();
+        try {
+            return artistCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // undirected edges, a pair of artists that share any release counts once
+    public long getEdgeCount() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int internArtist(String artistId, String artistName) {
+        int artist = artistIds.intern(artistId);
+        if (artist == artistCount) {
+            if (artistCount == neighbors.length) {
+                int capacity = artistCount * 2;
+                artistKeys = Arrays.copyOf(artistKeys, capacity);
+                artistNames = Arrays.copyOf(artistNames, capacity);
+                neighbors = Arrays.copyOf(neighbors, capacity);
+            }
+            artistKeys[artist] = artistId;
+            artistNames[artist] = artistName;
+            neighbors[artist] = new Neighbors();
+            artistCount++;
+        }
+        return artist;
+    }
+
+    // stronger means more shared albums, ties go to the artist seen first
+    private static boolean isStronger(int weight, int artist, int otherWeight, int otherArtist) {
+        return weight != otherWeight ? weight > otherWeight : artist < otherArtist;
+    }
+
+    private static void siftUp(int[] artists, int[] weights, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!isStronger(weights[parent], artists[parent], weights[index], artists[index])) {
+                return;
+            }
+            swap(artists, weights, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] artists, int[] weights, int size) {
+        int index = 0;
+        while (true) {
+            int weakest = index;
+            for (int child = index * 2 + 1; child <= index * 2 + 2 && child < size; child++) {
+                if (isStronger(weights[weakest], artists[weakest], weights[child], artists[child])) {
+                    weakest = child;
+                }
+            }
+            if (weakest == index) {
+                return;
+            }
+            swap(artists, weights, weakest, index);
+            index = weakest;
+        }
+    }
+
+    private static void swap(int[] artists, int[] weights, int i, int j) {
+        int artist = artists[i];
+        artists[i] = artists[j];
+        artists[j] = artist;
+        int weight = weights[i];
+        weights[i] = weights[j];
+        weights[j] = weight;
+    }
+}
@@ -0,0 +1,121 @@
+package krik.java.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class EndpointMetrics implements EndpointMetricsMBean {
+    private final String name;
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram decodeTime = new LatencyHistogram();
+
+    EndpointMetrics(String name) {
+        this.name = name;
+    }
+
+    public void recordRequest(long latencyNanos) {
+        latency.record(latencyNanos);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public void recordHedge() {
+        hedges.increment();
+    }
+
+    public void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    public void recordCoalesced() {
+        coalesced.increment();
+    }
+
+    public void recordBytesReceived(long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    public void recordDecodeTime(long nanos) {
+        decodeTime.record(nanos);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getRequests() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return latency.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getLatencyP95Millis() {
+        return latency.getPercentileMillis(95);
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return latency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return latency.getMaxMillis();
+    }
+
+    @Override
+    public double getDecodeP50Millis() {
+        return decodeTime.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getDecodeP99Millis() {
+        return decodeTime.getPercentileMillis(99);
+    }
+}
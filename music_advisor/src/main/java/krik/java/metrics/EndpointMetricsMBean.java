@@ -0,0 +1,31 @@
+package krik.java.metrics;
+
+public interface EndpointMetricsMBean {
+    String getName();
+
+    long getRequests();
+
+    long getErrors();
+
+    long getRetries();
+
+    long getHedges();
+
+    long getCacheHits();
+
+    long getCoalesced();
+
+    long getBytesReceived();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP95Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyMaxMillis();
+
+    double getDecodeP50Millis();
+
+    double getDecodeP99Millis();
+}
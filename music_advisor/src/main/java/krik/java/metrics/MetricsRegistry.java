@@ -0,0 +1,55 @@
+package krik.java.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class MetricsRegistry {
+    private static final String JMX_DOMAIN = "krik.java.music_advisor";
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry(true);
+
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final boolean exportToJmx;
+
+    public MetricsRegistry(boolean exportToJmx) {
+        this.exportToJmx = exportToJmx;
+    }
+
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public EndpointMetrics getEndpoint(String name) {
+        var metrics = endpoints.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        return endpoints.computeIfAbsent(name, this::createEndpoint);
+    }
+
+    public List<EndpointMetrics> getEndpoints() {
+        var result = new ArrayList<>(endpoints.values());
+        result.sort(Comparator.comparing(EndpointMetrics::getName));
+        return result;
+    }
+
+    private EndpointMetrics createEndpoint(String name) {
+        var metrics = new EndpointMetrics(name);
+        if (exportToJmx) {
+            try {
+                var objectName = new ObjectName(JMX_DOMAIN, "endpoint", ObjectName.quote(name));
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+            } catch (InstanceAlreadyExistsException ignored) {
+            } catch (JMException e) {
+                System.err.printf("Can't export metrics for %s: %s%n", name, e.getMessage());
+            }
+        }
+        return metrics;
+    }
+}
@@ -1,7 +1,21 @@
 package krik.java.pager;
 
 public enum PageAction {
-    NEXT,
-    PREV,
-    EXIT,
+    NEXT(false),
+    PREV(false),
+    FIRST(false),
+    LAST(false),
+    PAGE(true),
+    SIZE(true),
+    EXIT(false);
+
+    private final boolean hasArgument;
+
+    PageAction(boolean hasArgument) {
+        this.hasArgument = hasArgument;
+    }
+
+    public boolean hasArgument() {
+        return hasArgument;
+    }
 }
@@ -0,0 +1,20 @@
+package krik.java.pager;
+
+import java.util.Locale;
+
+public record PageCommand(PageAction action, int argument) {
+    public static PageCommand of(PageAction action) {
+        return new PageCommand(action, 0);
+    }
+
+    public static PageCommand parse(String action, String argument) {
+        var pageAction = PageAction.valueOf(action.toUpperCase(Locale.ROOT));
+        if (!pageAction.hasArgument()) {
+            return of(pageAction);
+        }
+        if (argument == null || argument.isEmpty()) {
+            throw new IllegalArgumentException("Page command %s requires a number".formatted(action));
+        }
+        return new PageCommand(pageAction, Integer.parseInt(argument));
+    }
+}
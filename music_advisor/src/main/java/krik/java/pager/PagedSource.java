@@ -0,0 +1,23 @@
+package krik.java.pager;
+
+import java.util.List;
+
+public interface PagedSource<E> {
+    int size();
+
+    List<E> getItems(int fromIndex, int toIndex);
+
+    static <E> PagedSource<E> of(List<E> items) {
+        return new PagedSource<>() {
+            @Override
+            public int size() {
+                return items.size();
+            }
+
+            @Override
+            public List<E> getItems(int fromIndex, int toIndex) {
+                return items.subList(fromIndex, toIndex);
+            }
+        };
+    }
+}
@@ -6,8 +6,8 @@ import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public class Pager<E> {
-    private final List<E> items;
-    private final int pageSize;
+    private final PagedSource<E> items;
+    private int pageSize;
     private final Consumer<E> pageItemConsumer;
     private int curPage = 0;
 
@@ -16,6 +16,15 @@ public class Pager<E> {
             int pageSize,
             Consumer<E> pageItemConsumer
     )
+    {
+        this(PagedSource.of(items), pageSize, pageItemConsumer);
+    }
+
+    public Pager(
+            PagedSource<E> items,
+            int pageSize,
+            Consumer<E> pageItemConsumer
+    )
     {
         this.items = items;
         this.pageSize = pageSize;
@@ -23,44 +32,79 @@ public class Pager<E> {
     }
 
     public void run(
-            Supplier<PageAction> commandSupplier,
+            Supplier<PageCommand> commandSupplier,
             BiConsumer<Integer, Integer> onPageChange,
             BiConsumer<Integer, Integer> onWrongPage
     )
     {
         displayPage();
-        onPageChange.accept(curPage + 1, getTotalPages());
-
-        PageAction action = commandSupplier.get();
-        while (action != PageAction.EXIT) {
-            boolean isPageTurnedOver = switch (action) {
-                case NEXT -> this.next();
-                case PREV -> this.prev();
-                default -> false;
-            };
+        onPageChange.accept(getCurrentPage(), getTotalPages());
 
-            if (isPageTurnedOver) {
+        PageCommand command = commandSupplier.get();
+        while (command.action() != PageAction.EXIT) {
+            if (turnPage(command)) {
                 displayPage();
-                onPageChange.accept(curPage + 1, getTotalPages());
+                onPageChange.accept(getCurrentPage(), getTotalPages());
             } else {
-                onWrongPage.accept(curPage + 1, getTotalPages());
+                onWrongPage.accept(getCurrentPage(), getTotalPages());
             }
 
-            action = commandSupplier.get();
+            command = commandSupplier.get();
+        }
+    }
+
+    public boolean turnPage(PageAction action) {
+        return turnPage(PageCommand.of(action));
+    }
+
+    public boolean turnPage(PageCommand command) {
+        return switch (command.action()) {
+            case NEXT -> this.next();
+            case PREV -> this.prev();
+            case FIRST -> this.goToPage(1);
+            case LAST -> this.goToPage(Math.max(1, getTotalPages()));
+            case PAGE -> this.goToPage(command.argument());
+            case SIZE -> this.setPageSize(command.argument());
+            default -> false;
+        };
+    }
+
+    public boolean goToPage(int page) {
+        if (page < 1 || page > getTotalPages() || page - 1 == curPage) {
+            return false;
         }
+        curPage = page - 1;
+        return true;
+    }
+
+    public boolean setPageSize(int newPageSize) {
+        if (newPageSize < 1 || newPageSize == pageSize) {
+            return false;
+        }
+        curPage = curPage * pageSize / newPageSize;
+        pageSize = newPageSize;
+        return true;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getCurrentPage() {
+        return curPage + 1;
     }
 
-    private void displayPage() {
+    public void displayPage() {
         int curPageFirstItem = curPage * pageSize;
         int nextPageFirstItem = Math.min(items.size(), curPageFirstItem + pageSize);
-        for (int i = curPage * pageSize; i < nextPageFirstItem; i++) {
-            pageItemConsumer.accept(items.get(i));
+        if (curPageFirstItem < nextPageFirstItem) {
+            items.getItems(curPageFirstItem, nextPageFirstItem).forEach(pageItemConsumer);
         }
     }
 
     private boolean next() {
         int prevPage = curPage;
-        curPage = Math.min(curPage + 1, getTotalPages() - 1);
+        curPage = Math.max(0, Math.min(curPage + 1, getTotalPages() - 1));
         return curPage != prevPage;
     }
 
@@ -70,7 +114,8 @@ public class Pager<E> {
         return curPage != nextPage;
     }
 
-    private int getTotalPages() {
-        return items.size() / pageSize + (items.size() % pageSize == 0 ? 0 : 1);
+    public int getTotalPages() {
+        int size = items.size();
+        return size / pageSize + (size % pageSize == 0 ? 0 : 1);
     }
 }
@@ -0,0 +1,319 @@
+package krik.java.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+public class SearchIndex {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int EXACT_MATCH_SCORE = 3;
+    private static final int PREFIX_MATCH_SCORE = 2;
+    private static final int FUZZY_MATCH_SCORE = 1;
+    private static final int MIN_FUZZY_TOKEN_LENGTH = 4;
+    private static final int MAX_RESULTS = 200;
+
+    public enum Kind {
+        ALBUM,
+        ARTIST,
+        PLAYLIST,
+    }
+
+    public record Document(Kind kind, String id, String title, String[] subtitles) {
+        public String subtitle() {
+            return subtitles == null ? null : String.join(", ", subtitles);
+        }
+    }
+
+    private static class Postings {
+        // doc id shifted left by one, the lowest bit is set when the term occurs in the title
+        int[] entries = new int[4];
+        int size = 0;
+
+        void add(int docId, boolean isTitle) {
+            int entry = docId << 1 | (isTitle ? 1 : 0);
+            if (size > 0 && entries[size - 1] >>> 1 == docId) {
+                entries[size - 1] |= entry;
+                return;
+            }
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+    }
+
+    private static class Scratch {
+        int[] scores = new int[0];
+        int[] matchedTokens = new int[0];
+        int[] tokenScores = new int[0];
+        int[] touched = new int[0];
+
+        void ensureCapacity(int documentCount) {
+            if (scores.length < documentCount) {
+                int capacity = Math.max(documentCount, scores.length * 3 / 2);
+                scores = new int[capacity];
+                matchedTokens = new int[capacity];
+                tokenScores = new int[capacity];
+                touched = new int[capacity];
+            }
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<Kind, Map<String, Integer>> documentIds = new EnumMap<>(Kind.class);
+    private final Map<String, String> subtitleNames = new HashMap<>();
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    // scratch arrays are as long as the document list, so queries share them instead of allocating their own
+    private final Queue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+
+    public SearchIndex() {
+        for (var kind : Kind.values()) {
+            documentIds.put(kind, new HashMap<>());
+        }
+    }
+
+    public <T> List<T> addAll(
+            Kind kind,
+            List<T> items,
+            Function<T, String> idGetter,
+            Function<T, String> titleGetter,
+            Function<T, String[]> subtitlesGetter
+    )
+    {
+        List<T> missing = null;
+        lock.readLock().lock();
+        try {
+            var ids = documentIds.get(kind);
+            for (var item : items) {
+                var id = idGetter.apply(item);
+                if (id != null && titleGetter.apply(item) != null && !ids.containsKey(id)) {
+                    if (missing == null) {
+                        missing = new ArrayList<>();
+                    }
+                    missing.add(item);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (missing == null) {
+            return List.of();
+        }
+
+        List<T> added = new ArrayList<>(missing.size());
+        lock.writeLock().lock();
+        try {
+            for (var item : missing) {
+                if (add(kind, idGetter.apply(item), titleGetter.apply(item), subtitlesGetter.apply(item))) {
+                    added.add(item);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return added;
+    }
+
+    private boolean add(Kind kind, String id, String title, String[] subtitles) {
+        var ids = documentIds.get(kind);
+        if (ids.containsKey(id)) {
+            return false;
+        }
+        int docId = documents.size();
+        if (subtitles != null) {
+            for (int i = 0; i < subtitles.length; i++) {
+                subtitles[i] = subtitleNames.computeIfAbsent(subtitles[i], Function.identity());
+            }
+        }
+        documents.add(new Document(kind, id, title, subtitles));
+        ids.put(id, docId);
+        for (var token : tokenize(title)) {
+            terms.computeIfAbsent(token, ignored -> new Postings()).add(docId, true);
+        }
+        if (subtitles != null) {
+            for (var subtitle : subtitles) {
+                if (subtitle == null) {
+                    continue;
+                }
+                for (var token : tokenize(subtitle)) {
+                    terms.computeIfAbsent(token, ignored -> new Postings()).add(docId, false);
+                }
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Document> search(String query) {
+        var queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            var scratch = scratchPool.poll();
+            if (scratch == null) {
+                scratch = new Scratch();
+            }
+            scratch.ensureCapacity(documents.size());
+
+            int candidateCount = collectTokenScores(queryTokens.get(0), scratch);
+            int[] candidates = Arrays.copyOf(scratch.touched, candidateCount);
+            for (int docId : candidates) {
+                scratch.scores[docId] = scratch.tokenScores[docId];
+                scratch.matchedTokens[docId] = 1;
+                scratch.tokenScores[docId] = 0;
+            }
+
+            for (int i = 1; i < queryTokens.size(); i++) {
+                int touchedCount = collectTokenScores(queryTokens.get(i), scratch);
+                for (int j = 0; j < touchedCount; j++) {
+                    int docId = scratch.touched[j];
+                    if (scratch.matchedTokens[docId] == i) {
+                        scratch.matchedTokens[docId]++;
+                        scratch.scores[docId] += scratch.tokenScores[docId];
+                    }
+                    scratch.tokenScores[docId] = 0;
+                }
+            }
+
+            List<Document> result = selectBest(candidates, queryTokens.size(), scratch);
+            for (int docId : candidates) {
+                scratch.scores[docId] = 0;
+                scratch.matchedTokens[docId] = 0;
+            }
+            scratchPool.offer(scratch);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Document> selectBest(int[] candidates, int tokenCount, Scratch scratch) {
+        List<Integer> best = new ArrayList<>();
+        for (int score = EXACT_MATCH_SCORE * 2 * tokenCount; score > 0 && best.size() < MAX_RESULTS; score--) {
+            for (int i = 0; i < candidates.length && best.size() < MAX_RESULTS; i++) {
+                int docId = candidates[i];
+                if (scratch.matchedTokens[docId] == tokenCount && scratch.scores[docId] == score) {
+                    best.add(docId);
+                }
+            }
+        }
+        best.sort(Comparator
+                .<Integer>comparingInt(docId -> -scratch.scores[docId])
+                .thenComparingInt(docId -> documents.get(docId).title().length())
+                .thenComparing(docId -> documents.get(docId).title()));
+
+        List<Document> result = new ArrayList<>(best.size());
+        for (var docId : best) {
+            result.add(documents.get(docId));
+        }
+        return result;
+    }
+
+    private int collectTokenScores(String token, Scratch scratch) {
+        int[] tokenScores = scratch.tokenScores;
+        int[] touched = scratch.touched;
+        int touchedCount = 0;
+        for (var term : terms.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            int score = term.getKey().length() == token.length() ? EXACT_MATCH_SCORE : PREFIX_MATCH_SCORE;
+            touchedCount = addPostings(term.getValue(), score, tokenScores, touched, touchedCount);
+        }
+        if (touchedCount > 0 || token.length() < MIN_FUZZY_TOKEN_LENGTH) {
+            return touchedCount;
+        }
+
+        int maxDistance = token.length() < 8 ? 1 : 2;
+        // only terms that start with the same character are tried, a full scan of the dictionary per token
+        // costs too much, so a typo in the first letter doesn't match
+        var firstChar = token.substring(0, Character.charCount(token.codePointAt(0)));
+        var candidates = terms.subMap(firstChar, true, firstChar + Character.MAX_VALUE, false);
+        for (var term : candidates.entrySet()) {
+            var candidate = term.getKey();
+            if (Math.abs(candidate.length() - token.length()) <= maxDistance &&
+                    isWithinDistance(token, candidate, maxDistance)) {
+                touchedCount = addPostings(term.getValue(), FUZZY_MATCH_SCORE, tokenScores, touched, touchedCount);
+            }
+        }
+        return touchedCount;
+    }
+
+    private static int addPostings(Postings postings, int score, int[] tokenScores, int[] touched, int touchedCount) {
+        for (int i = 0; i < postings.size; i++) {
+            int docId = postings.entries[i] >>> 1;
+            // title matches outrank subtitle matches of the same kind
+            int entryScore = score * 2 - 1 + (postings.entries[i] & 1);
+            if (tokenScores[docId] == 0) {
+                touched[touchedCount++] = docId;
+            }
+            tokenScores[docId] = Math.max(tokenScores[docId], entryScore);
+        }
+        return touchedCount;
+    }
+
+    private static boolean isWithinDistance(String a, String b, int maxDistance) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return false;
+            }
+            var swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= maxDistance;
+    }
+
+    static List<String> tokenize(String text) {
+        var normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean isTokenChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (isTokenChar && start < 0) {
+                start = i;
+            } else if (!isTokenChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,60 @@
+package krik.java.simulator;
+
+public record SimulatorOptions(
+        Integer port,
+        Integer albums,
+        Integer featuredPlaylists,
+        Integer categories,
+        Integer categoryPlaylists,
+        Integer latencyMillis,
+        Integer latencyJitterMillis,
+        Double throttleRate,
+        Double errorRate,
+        Integer pageSize,
+        Integer maxPageSize,
+        Integer tokenTtlSeconds,
+        Boolean requireAuth,
+        Double slowResponseRate,
+        Integer slowResponseMillis
+) {
+    private static final int DEFAULT_PORT = 9090;
+    private static final int DEFAULT_ALBUMS = 1000;
+    private static final int DEFAULT_FEATURED_PLAYLISTS = 200;
+    private static final int DEFAULT_CATEGORIES = 50;
+    private static final int DEFAULT_CATEGORY_PLAYLISTS = 100;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int DEFAULT_MAX_PAGE_SIZE = 50;
+    private static final int DEFAULT_TOKEN_TTL_SECONDS = 3600;
+    private static final int DEFAULT_SLOW_RESPONSE_MILLIS = 1000;
+
+    public SimulatorOptions {
+        port = port == null ? DEFAULT_PORT : port;
+        albums = albums == null ? DEFAULT_ALBUMS : albums;
+        featuredPlaylists = featuredPlaylists == null ? DEFAULT_FEATURED_PLAYLISTS : featuredPlaylists;
+        categories = categories == null ? DEFAULT_CATEGORIES : categories;
+        categoryPlaylists = categoryPlaylists == null ? DEFAULT_CATEGORY_PLAYLISTS : categoryPlaylists;
+        latencyMillis = latencyMillis == null ? 0 : latencyMillis;
+        latencyJitterMillis = latencyJitterMillis == null ? 0 : latencyJitterMillis;
+        throttleRate = throttleRate == null ? 0 : throttleRate;
+        errorRate = errorRate == null ? 0 : errorRate;
+        pageSize = pageSize == null ? DEFAULT_PAGE_SIZE : pageSize;
+        maxPageSize = maxPageSize == null ? DEFAULT_MAX_PAGE_SIZE : maxPageSize;
+        tokenTtlSeconds = tokenTtlSeconds == null ? DEFAULT_TOKEN_TTL_SECONDS : tokenTtlSeconds;
+        requireAuth = requireAuth == null || requireAuth;
+        slowResponseRate = slowResponseRate == null ? 0 : slowResponseRate;
+        slowResponseMillis = slowResponseMillis == null ? DEFAULT_SLOW_RESPONSE_MILLIS : slowResponseMillis;
+        if (pageSize < 1 || maxPageSize < pageSize) {
+            throw new IllegalArgumentException("pageSize must be positive and not larger than maxPageSize");
+        }
+        if (throttleRate < 0 || errorRate < 0 || throttleRate + errorRate > 1) {
+            throw new IllegalArgumentException("throttle and error rates must be in [0, 1]");
+        }
+        if (slowResponseRate < 0 || slowResponseRate > 1 || slowResponseMillis < 0) {
+            throw new IllegalArgumentException("slow response rate must be in [0, 1] and its latency not negative");
+        }
+    }
+
+    public static SimulatorOptions defaults() {
+        return new SimulatorOptions(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,358 @@
+package krik.java.simulator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class SpotifySimulator {
+    private static final Pattern CATEGORY_PLAYLISTS_PATH = Pattern.compile("^/v1/browse/categories/([^/]+)/playlists/?$");
+    private static final int ARTISTS = 5000;
+
+    private enum ItemType {
+        ALBUM,
+        PLAYLIST,
+        CATEGORY,
+    }
+
+    private final SimulatorOptions options;
+    private final Map<String, Long> issuedTokens = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public SpotifySimulator(SimulatorOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) {
+        var simulator = new SpotifySimulator(new SimulatorOptions(
+                getIntegerParamValue(args, "-port"),
+                getIntegerParamValue(args, "-albums"),
+                getIntegerParamValue(args, "-featured"),
+                getIntegerParamValue(args, "-categories"),
+                getIntegerParamValue(args, "-category-playlists"),
+                getIntegerParamValue(args, "-latency"),
+                getIntegerParamValue(args, "-jitter"),
+                getDoubleParamValue(args, "-throttle-rate"),
+                getDoubleParamValue(args, "-error-rate"),
+                getIntegerParamValue(args, "-page-size"),
+                getIntegerParamValue(args, "-max-page-size"),
+                getIntegerParamValue(args, "-token-ttl"),
+                getParamValue(args, "-no-auth") == null ? null : false,
+                getDoubleParamValue(args, "-slow-rate"),
+                getIntegerParamValue(args, "-slow-latency")
+        ));
+        simulator.start();
+        System.out.printf("Spotify simulator is listening on http://localhost:%d%n", simulator.getPort());
+    }
+
+    public void start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", options.port()), 0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/authorize", this::handleAuthorize);
+        server.createContext("/api/token", this::handleToken);
+        server.createContext("/v1/browse/", this::handleBrowse);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleAuthorize(HttpExchange exchange) throws IOException {
+        var redirectUri = getQueryParams(exchange.getRequestURI().getRawQuery()).get("redirect_uri");
+        if (redirectUri == null) {
+            sendJson(exchange, 400, errorBody(400, "redirect_uri is required"));
+            return;
+        }
+        exchange.getResponseHeaders().add("Location", "%s?code=%s".formatted(redirectUri, UUID.randomUUID()));
+        exchange.sendResponseHeaders(302, -1);
+        exchange.close();
+    }
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendJson(exchange, 405, errorBody(405, "Method not allowed"));
+            return;
+        }
+        var params = getQueryParams(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        var grantType = Objects.requireNonNullElse(params.get("grant_type"), "");
+        boolean isValidGrant = switch (grantType) {
+            case "authorization_code" -> params.containsKey("code");
+            case "refresh_token" -> params.containsKey("refresh_token");
+            default -> false;
+        };
+        if (!isValidGrant) {
+            sendJson(exchange, 400, "{\"error\":\"invalid_grant\",\"error_description\":\"Invalid grant\"}");
+            return;
+        }
+
+        var accessToken = UUID.randomUUID().toString();
+        issuedTokens.put(accessToken, System.currentTimeMillis() + options.tokenTtlSeconds() * 1000L);
+        var refreshToken = grantType.equals("refresh_token") ? params.get("refresh_token") : UUID.randomUUID().toString();
+        sendJson(exchange, 200, """
+                {"access_token":"%s","token_type":"Bearer","expires_in":%d,"refresh_token":"%s","scope":""}"""
+                .formatted(accessToken, options.tokenTtlSeconds(), refreshToken));
+    }
+
+    private void handleBrowse(HttpExchange exchange) throws IOException {
+        simulateLatency();
+
+        double failure = ThreadLocalRandom.current().nextDouble();
+        if (failure < options.throttleRate()) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            sendJson(exchange, 429, errorBody(429, "API rate limit exceeded"));
+            return;
+        }
+        if (failure < options.throttleRate() + options.errorRate()) {
+            sendJson(exchange, 503, errorBody(503, "Service unavailable"));
+            return;
+        }
+
+        if (options.requireAuth() && !isAuthorized(exchange)) {
+            sendJson(exchange, 401, errorBody(401, "The access token expired"));
+            return;
+        }
+
+        var path = exchange.getRequestURI().getPath();
+        var params = getQueryParams(exchange.getRequestURI().getRawQuery());
+        String body;
+        if (path.matches("^/v1/browse/new-releases/?$")) {
+            body = page(exchange, "albums", ItemType.ALBUM, options.albums(), params, 0);
+        } else if (path.matches("^/v1/browse/featured-playlists/?$")) {
+            body = page(exchange, "playlists", ItemType.PLAYLIST, options.featuredPlaylists(), params, 0);
+        } else if (path.matches("^/v1/browse/categories/?$")) {
+            body = page(exchange, "categories", ItemType.CATEGORY, options.categories(), params, 0);
+        } else {
+            var matcher = CATEGORY_PLAYLISTS_PATH.matcher(path);
+            int categoryIndex = matcher.matches() ? getCategoryIndex(matcher.group(1)) : -1;
+            if (categoryIndex < 0) {
+                sendJson(exchange, 404, errorBody(404, "Specified id doesn't exist"));
+                return;
+            }
+            // shift playlists of every category so categories share a part of their playlists
+            int firstPlaylist = categoryIndex * Math.max(1, options.categoryPlaylists() / 2);
+            body = page(exchange, "playlists", ItemType.PLAYLIST, options.categoryPlaylists(), params, firstPlaylist);
+        }
+
+        var etag = "\"%08x\"".formatted(body.hashCode());
+        exchange.getResponseHeaders().add("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        sendJson(exchange, 200, body);
+    }
+
+    private String page(
+            HttpExchange exchange,
+            String itemsName,
+            ItemType itemType,
+            int total,
+            Map<String, String> params,
+            int firstItem
+    )
+    {
+        int offset = Math.max(0, parseInt(params.get("offset"), 0));
+        int limit = Math.min(options.maxPageSize(), Math.max(1, parseInt(params.get("limit"), options.pageSize())));
+
+        var page = new StringBuilder(256 * limit).append("{\"").append(itemsName).append("\":{\"href\":\"")
+                .append(getPageUrl(exchange, offset, limit)).append("\",\"items\":[");
+        for (int i = offset; i < Math.min(total, offset + limit); i++) {
+            if (i > offset) {
+                page.append(',');
+            }
+            appendItem(page, itemType, firstItem + i);
+        }
+        page.append("],\"limit\":").append(limit)
+                .append(",\"offset\":").append(offset)
+                .append(",\"total\":").append(total)
+                .append(",\"previous\":").append(offset > 0 ? quote(getPageUrl(exchange, Math.max(0, offset - limit), limit)) : "null")
+                .append(",\"next\":").append(offset + limit < total ? quote(getPageUrl(exchange, offset + limit, limit)) : "null")
+                .append("}}");
+        return page.toString();
+    }
+
+    private static void appendItem(StringBuilder page, ItemType itemType, int index) {
+        switch (itemType) {
+            case ALBUM -> {
+                int firstArtist = (int) ((index * 2654435761L) % ARTISTS);
+                int secondArtist = (firstArtist + 1 + index % 7) % ARTISTS;
+                page.append("""
+                        {"album_type":"album","id":"%1$s","name":"Album %2$d","release_date":"2023-11-29",\
+                        "total_tracks":%3$d,"external_urls":{"spotify":"https://open.spotify.com/album/%1$s"},\
+                        "images":[{"height":640,"url":"https://i.scdn.co/image/%1$s","width":640}],\
+                        "artists":[%4$s,%5$s]}"""
+                        .formatted(getId("album", index), index, 8 + index % 10, artist(firstArtist), artist(secondArtist)));
+            }
+            case PLAYLIST -> page.append("""
+                    {"collaborative":false,"description":"Generated playlist %2$d","id":"%1$s","name":"Playlist %2$d",\
+                    "external_urls":{"spotify":"https://open.spotify.com/playlist/%1$s"},\
+                    "owner":{"display_name":"Spotify","id":"spotify"},"tracks":{"total":50}}"""
+                    .formatted(getId("playlist", index), index));
+            case CATEGORY -> page.append("""
+                    {"href":"https://api.spotify.com/v1/browse/categories/%1$s","id":"%1$s","name":"Category %2$d",\
+                    "icons":[{"height":274,"url":"https://t.scdn.co/media/%1$s.jpg","width":274}]}"""
+                    .formatted(getId("category", index), index));
+        }
+    }
+
+    private static String artist(int index) {
+        return """
+                {"id":"%1$s","name":"Artist %2$d","type":"artist",\
+                "external_urls":{"spotify":"https://open.spotify.com/artist/%1$s"}}"""
+                .formatted(getId("artist", index), index);
+    }
+
+    private static String getId(String prefix, int index) {
+        return "%s%06d".formatted(prefix, index);
+    }
+
+    private int getCategoryIndex(String categoryId) {
+        if (!categoryId.startsWith("category")) {
+            return -1;
+        }
+        int index = parseInt(categoryId.substring("category".length()), -1);
+        return index < options.categories() ? index : -1;
+    }
+
+    private boolean isAuthorized(HttpExchange exchange) {
+        var authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        var expiresAt = issuedTokens.get(authorization.substring("Bearer ".length()));
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    private void simulateLatency() {
+        long latency = options.latencyMillis();
+        if (options.latencyJitterMillis() > 0) {
+            latency += ThreadLocalRandom.current().nextLong(options.latencyJitterMillis() + 1);
+        }
+        if (ThreadLocalRandom.current().nextDouble() < options.slowResponseRate()) {
+            latency += options.slowResponseMillis();
+        }
+        if (latency <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String getPageUrl(HttpExchange exchange, int offset, int limit) {
+        var host = Objects.requireNonNullElse(exchange.getRequestHeaders().getFirst("Host"), "localhost");
+        return "http://%s%s?offset=%d&limit=%d".formatted(host, exchange.getRequestURI().getPath(), offset, limit);
+    }
+
+    private static String errorBody(int status, String message) {
+        return "{\"error\":{\"status\":%d,\"message\":\"%s\"}}".formatted(status, message);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    private static void sendJson(HttpExchange exchange, int code, String body) throws IOException {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        var acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            bytes = compress(bytes, GZIPOutputStream::new);
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        } else if (acceptEncoding != null && acceptEncoding.contains("deflate")) {
+            bytes = compress(bytes, DeflaterOutputStream::new);
+            exchange.getResponseHeaders().add("Content-Encoding", "deflate");
+        }
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (var responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    private interface CompressingStreamFactory {
+        OutputStream create(OutputStream out) throws IOException;
+    }
+
+    private static byte[] compress(byte[] bytes, CompressingStreamFactory streamFactory) throws IOException {
+        var compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (var out = streamFactory.create(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static Map<String, String> getQueryParams(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (var param : query.split("&")) {
+            var paramKeyValue = param.split("=", 2);
+            if (paramKeyValue.length == 2) {
+                params.put(
+                        URLDecoder.decode(paramKeyValue[0], StandardCharsets.UTF_8),
+                        URLDecoder.decode(paramKeyValue[1], StandardCharsets.UTF_8)
+                );
+            }
+        }
+        return params;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static Integer getIntegerParamValue(String[] args, String paramName) {
+        var value = getParamValue(args, paramName);
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    private static Double getDoubleParamValue(String[] args, String paramName) {
+        var value = getParamValue(args, paramName);
+        return value == null ? null : Double.valueOf(value);
+    }
+
+    private static String getParamValue(String[] args, String paramName) {
+        for (int i = 0; i < args.length; i++) {
+            if (Objects.equals(args[i], paramName)) {
+                return i + 1 < args.length ? args[i + 1] : "";
+            }
+        }
+        return null;
+    }
+}
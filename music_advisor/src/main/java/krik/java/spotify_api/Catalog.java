@@ -0,0 +1,13 @@
+package krik.java.spotify_api;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+class Catalog {
+    private final ConcurrentMap<SpotifyService.Artist, SpotifyService.Artist> artists = new ConcurrentHashMap<>();
+
+    SpotifyService.Artist intern(SpotifyService.Artist artist) {
+        var interned = artists.putIfAbsent(artist, artist);
+        return interned == null ? artist : interned;
+    }
+}
@@ -0,0 +1,92 @@
+package krik.java.spotify_api;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+class CategoryIndex {
+    private record Snapshot(
+            Map<String, SpotifyService.Category> byId,
+            NavigableMap<String, SpotifyService.Category> byName,
+            long loadedAtMillis
+    ) {}
+
+    private final long ttlMillis;
+    private final Executor executor;
+    private final AtomicBoolean isRefreshing = new AtomicBoolean(false);
+    private volatile Snapshot snapshot;
+
+    CategoryIndex(long ttlMillis, Executor executor) {
+        this.ttlMillis = ttlMillis;
+        this.executor = executor;
+    }
+
+    Optional<SpotifyService.Category> find(
+            String nameOrId,
+            Supplier<List<SpotifyService.Category>> categoriesLoader
+    )
+    {
+        var current = getSnapshot(categoriesLoader);
+
+        var category = current.byId().get(nameOrId);
+        if (category != null) {
+            return Optional.of(category);
+        }
+
+        var key = normalize(nameOrId);
+        category = current.byName().get(key);
+        if (category != null) {
+            return Optional.of(category);
+        }
+
+        if (key.isEmpty()) {
+            return Optional.empty();
+        }
+        var prefixMatches = current.byName().subMap(key, true, key + Character.MAX_VALUE, true);
+        return prefixMatches.size() == 1 ?
+                Optional.of(prefixMatches.firstEntry().getValue()) :
+                Optional.empty();
+    }
+
+    private Snapshot getSnapshot(Supplier<List<SpotifyService.Category>> categoriesLoader) {
+        var current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = load(categoriesLoader);
+                }
+                return snapshot;
+            }
+        }
+
+        if (System.currentTimeMillis() - current.loadedAtMillis() > ttlMillis
+                && isRefreshing.compareAndSet(false, true))
+        {
+            CompletableFuture.runAsync(() -> snapshot = load(categoriesLoader), executor)
+                    .whenComplete((result, e) -> isRefreshing.set(false));
+        }
+        return current;
+    }
+
+    private static Snapshot load(Supplier<List<SpotifyService.Category>> categoriesLoader) {
+        Map<String, SpotifyService.Category> byId = new HashMap<>();
+        NavigableMap<String, SpotifyService.Category> byName = new TreeMap<>();
+        for (var category : categoriesLoader.get()) {
+            byId.putIfAbsent(category.id(), category);
+            byName.putIfAbsent(normalize(category.name()), category);
+        }
+        return new Snapshot(byId, byName, System.currentTimeMillis());
+    }
+
+    private static String normalize(String name) {
+        return name.strip().toLowerCase(Locale.ROOT);
+    }
+}
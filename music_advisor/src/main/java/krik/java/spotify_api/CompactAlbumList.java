@@ -0,0 +1,76 @@
+package krik.java.spotify_api;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+class CompactAlbumList extends AbstractList<SpotifyService.Album> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Catalog catalog;
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] webUrls = null;
+    private int[] artistsEnd = new int[INITIAL_CAPACITY];
+    private SpotifyService.Artist[] artists = new SpotifyService.Artist[INITIAL_CAPACITY];
+    private int size = 0;
+
+    CompactAlbumList(Catalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public SpotifyService.Album get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int artistsStart = index == 0 ? 0 : artistsEnd[index - 1];
+        return new SpotifyService.Album(
+                ids[index],
+                names[index],
+                webUrls == null ? null : webUrls[index],
+                Arrays.copyOfRange(artists, artistsStart, artistsEnd[index])
+        );
+    }
+
+    @Override
+    public boolean add(SpotifyService.Album album) {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            artistsEnd = Arrays.copyOf(artistsEnd, capacity);
+            if (webUrls != null) {
+                webUrls = Arrays.copyOf(webUrls, capacity);
+            }
+        }
+
+        ids[size] = album.id();
+        names[size] = album.name();
+        if (album.storedWebUrl() != null) {
+            if (webUrls == null) {
+                webUrls = new String[ids.length];
+            }
+            webUrls[size] = album.storedWebUrl();
+        }
+
+        int artistsStart = size == 0 ? 0 : artistsEnd[size - 1];
+        var albumArtists = album.artists();
+        if (artistsStart + albumArtists.length > artists.length) {
+            artists = Arrays.copyOf(artists, Math.max(artistsStart + albumArtists.length, artists.length * 3 / 2));
+        }
+        for (int i = 0; i < albumArtists.length; i++) {
+            artists[artistsStart + i] = catalog.intern(albumArtists[i]);
+        }
+        artistsEnd[size] = artistsStart + albumArtists.length;
+
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
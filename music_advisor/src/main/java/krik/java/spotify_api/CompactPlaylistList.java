@@ -0,0 +1,52 @@
+package krik.java.spotify_api;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+class CompactPlaylistList extends AbstractList<SpotifyService.Playlist> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] webUrls = null;
+    private int size = 0;
+
+    @Override
+    public SpotifyService.Playlist get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return new SpotifyService.Playlist(ids[index], names[index], webUrls == null ? null : webUrls[index]);
+    }
+
+    @Override
+    public boolean add(SpotifyService.Playlist playlist) {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            if (webUrls != null) {
+                webUrls = Arrays.copyOf(webUrls, capacity);
+            }
+        }
+
+        ids[size] = playlist.id();
+        names[size] = playlist.name();
+        if (playlist.storedWebUrl() != null) {
+            if (webUrls == null) {
+                webUrls = new String[ids.length];
+            }
+            webUrls[size] = playlist.storedWebUrl();
+        }
+
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,47 @@
+package krik.java.spotify_api;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+class CountingInputStream extends FilterInputStream {
+    private final LongConsumer bytesConsumer;
+
+    CountingInputStream(InputStream in, LongConsumer bytesConsumer) {
+        super(in);
+        this.bytesConsumer = bytesConsumer;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            bytesConsumer.accept(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            bytesConsumer.accept(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            bytesConsumer.accept(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
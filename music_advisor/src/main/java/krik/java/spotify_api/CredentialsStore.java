@@ -0,0 +1,71 @@
+package krik.java.spotify_api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Optional;
+
+class CredentialsStore {
+    record Credentials(String accessToken, String tokenType, String refreshToken, long expiresAtMillis) {}
+
+    private final Path path;
+    private final Gson gson = new Gson();
+
+    CredentialsStore(String path) {
+        this.path = path == null ? null : Path.of(path);
+    }
+
+    synchronized Optional<Credentials> load() {
+        if (path == null || !Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try {
+            var credentials = gson.fromJson(Files.readString(path, StandardCharsets.UTF_8), Credentials.class);
+            return Optional.ofNullable(credentials).filter(c -> c.accessToken() != null);
+        } catch (IOException | JsonParseException e) {
+            System.err.printf("Can't read stored credentials: %s%n", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    synchronized void save(Credentials credentials) {
+        if (path == null) {
+            return;
+        }
+        try {
+            var directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            var tmp = createOwnerOnlyFile(directory);
+            Files.writeString(tmp, gson.toJson(credentials), StandardCharsets.UTF_8);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.printf("Can't store credentials: %s%n", e.getMessage());
+        }
+    }
+
+    private Path createOwnerOnlyFile(Path directory) throws IOException {
+        var prefix = path.getFileName().toString();
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return Files.createTempFile(
+                    directory,
+                    prefix,
+                    ".tmp",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))
+            );
+        }
+        var tmp = Files.createTempFile(directory, prefix, ".tmp");
+        var file = tmp.toFile();
+        file.setReadable(false, false);
+        file.setWritable(false, false);
+        file.setReadable(true, true);
+        file.setWritable(true, true);
+        return tmp;
+    }
+}
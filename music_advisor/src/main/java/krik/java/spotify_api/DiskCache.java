@@ -0,0 +1,292 @@
+package krik.java.spotify_api;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+class DiskCache {
+    private static final String SEGMENT_FILE_NAME = "responses.seg";
+    private static final int RECORD_MAGIC = 0x4D414443;
+    // magic, crc, stored at, key length, etag length, body length
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 4;
+    private static final int CRC_OFFSET = 4;
+    private static final int STORED_AT_OFFSET = 8;
+    private static final int KEY_LENGTH_OFFSET = 16;
+    private static final int ETAG_LENGTH_OFFSET = 20;
+    private static final int BODY_LENGTH_OFFSET = 24;
+
+    record Record(byte[] body, String etag, long storedAtMillis) {}
+
+    private record Location(long offset, int length, long storedAtMillis) {}
+
+    private final Path segmentPath;
+    private final long maxBytes;
+    private final Map<String, Location> index = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long fileSize;
+    private boolean enabled;
+
+    private DiskCache(Path segmentPath, long maxBytes) {
+        this.segmentPath = segmentPath;
+        this.maxBytes = maxBytes;
+        this.enabled = segmentPath != null && maxBytes > 0;
+    }
+
+    static DiskCache disabled() {
+        return new DiskCache(null, 0);
+    }
+
+    static DiskCache open(String directory, long maxBytes) {
+        if (directory == null) {
+            return disabled();
+        }
+        var diskCache = new DiskCache(Path.of(directory).resolve(SEGMENT_FILE_NAME), maxBytes);
+        synchronized (diskCache) {
+            try {
+                Files.createDirectories(Path.of(directory));
+                diskCache.openSegment();
+            } catch (IOException e) {
+                diskCache.disable(e);
+            }
+        }
+        return diskCache;
+    }
+
+    synchronized Record get(URI uri) {
+        if (!enabled) {
+            return null;
+        }
+        var key = uri.toString();
+        var location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+
+        try {
+            var record = readRecord(location);
+            if (record == null) {
+                System.err.printf("Corrupted disk cache entry for %s, skipping it%n", uri);
+                index.remove(key);
+                return null;
+            }
+            return decodeRecord(record);
+        } catch (IOException e) {
+            disable(e);
+            return null;
+        }
+    }
+
+    synchronized void put(URI uri, byte[] body, String etag) {
+        if (!enabled) {
+            return;
+        }
+        var record = encodeRecord(uri.toString(), etag, body, System.currentTimeMillis());
+        if (record.remaining() > maxBytes) {
+            return;
+        }
+
+        try {
+            long offset = fileSize;
+            int length = record.remaining();
+            while (record.hasRemaining()) {
+                channel.write(record, fileSize + record.position());
+            }
+            fileSize += length;
+            index.put(uri.toString(), new Location(offset, length, record.getLong(STORED_AT_OFFSET)));
+
+            if (fileSize > maxBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    synchronized void close() {
+        if (!enabled) {
+            return;
+        }
+        enabled = false;
+        index.clear();
+        mapped = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.printf("Can't close disk cache: %s%n", e.getMessage());
+        }
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(
+                segmentPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+        fileSize = channel.size();
+        index.clear();
+        remap();
+
+        long offset = 0;
+        while (offset < fileSize) {
+            int length = offset + HEADER_BYTES <= fileSize ? getRecordLength(offset) : -1;
+            if (length < 0) {
+                // without a readable header the next record can't be found, so the rest is a torn tail
+                System.err.printf("Disk cache is corrupted at offset %d, dropping the tail%n", offset);
+                channel.truncate(offset);
+                fileSize = offset;
+                remap();
+                break;
+            }
+            var record = readRecord(new Location(offset, length, 0));
+            if (record == null) {
+                System.err.printf("Corrupted disk cache record at offset %d, skipping it%n", offset);
+                offset += length;
+                continue;
+            }
+            var key = readString(record, HEADER_BYTES, record.getInt(KEY_LENGTH_OFFSET));
+            index.put(key, new Location(offset, length, record.getLong(STORED_AT_OFFSET)));
+            offset += length;
+        }
+    }
+
+    private void compact() throws IOException {
+        var locations = new ArrayList<>(index.values());
+        locations.sort(Comparator.comparingLong(Location::storedAtMillis).reversed());
+
+        var compactedPath = segmentPath.resolveSibling(SEGMENT_FILE_NAME + ".compact");
+        try (var compacted = FileChannel.open(
+                compactedPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        ))
+        {
+            long written = 0;
+            long targetSize = maxBytes / 2;
+            for (var location : locations) {
+                if (written + location.length() > targetSize) {
+                    continue;
+                }
+                var record = readRecord(location);
+                if (record == null) {
+                    continue;
+                }
+                while (record.hasRemaining()) {
+                    compacted.write(record);
+                }
+                written += location.length();
+            }
+        }
+
+        channel.close();
+        mapped = null;
+        Files.move(compactedPath, segmentPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openSegment();
+    }
+
+    private int getRecordLength(long offset) throws IOException {
+        var header = mappedSlice(offset, HEADER_BYTES);
+        int keyLength = header.getInt(KEY_LENGTH_OFFSET);
+        int etagLength = header.getInt(ETAG_LENGTH_OFFSET);
+        int bodyLength = header.getInt(BODY_LENGTH_OFFSET);
+        if (header.getInt(0) != RECORD_MAGIC || keyLength < 0 || etagLength < -1 || bodyLength < 0) {
+            return -1;
+        }
+        long length = (long) HEADER_BYTES + keyLength + Math.max(0, etagLength) + bodyLength;
+        return offset + length > fileSize ? -1 : (int) length;
+    }
+
+    private ByteBuffer readRecord(Location location) throws IOException {
+        if (location.offset() + location.length() > fileSize) {
+            return null;
+        }
+        var record = mappedSlice(location.offset(), location.length());
+        if (record.getInt(0) != RECORD_MAGIC) {
+            return null;
+        }
+        var crc = new CRC32();
+        crc.update(record.slice(STORED_AT_OFFSET, location.length() - STORED_AT_OFFSET));
+        return (int) crc.getValue() == record.getInt(CRC_OFFSET) ? record : null;
+    }
+
+    private ByteBuffer mappedSlice(long offset, int length) throws IOException {
+        if (mapped == null || offset + length > mapped.capacity()) {
+            remap();
+        }
+        return mapped.slice((int) offset, length);
+    }
+
+    private void remap() throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+    }
+
+    private static Record decodeRecord(ByteBuffer record) {
+        int etagOffset = HEADER_BYTES + record.getInt(KEY_LENGTH_OFFSET);
+        int etagLength = record.getInt(ETAG_LENGTH_OFFSET);
+        int bodyOffset = etagOffset + Math.max(0, etagLength);
+        return new Record(
+                readBytes(record, bodyOffset, record.getInt(BODY_LENGTH_OFFSET)),
+                etagLength < 0 ? null : readString(record, etagOffset, etagLength),
+                record.getLong(STORED_AT_OFFSET)
+        );
+    }
+
+    private static String readString(ByteBuffer record, int offset, int length) {
+        return new String(readBytes(record, offset, length), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer record, int offset, int length) {
+        var bytes = new byte[length];
+        record.get(offset, bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer encodeRecord(String key, String etag, byte[] bodyBytes, long storedAtMillis) {
+        var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        var etagBytes = etag == null ? new byte[0] : etag.getBytes(StandardCharsets.UTF_8);
+
+        var record = ByteBuffer.allocate(HEADER_BYTES + keyBytes.length + etagBytes.length + bodyBytes.length);
+        record.putInt(RECORD_MAGIC)
+                .putInt(0)
+                .putLong(storedAtMillis)
+                .putInt(keyBytes.length)
+                .putInt(etag == null ? -1 : etagBytes.length)
+                .putInt(bodyBytes.length)
+                .put(keyBytes)
+                .put(etagBytes)
+                .put(bodyBytes)
+                .flip();
+
+        var crc = new CRC32();
+        crc.update(record.slice(STORED_AT_OFFSET, record.limit() - STORED_AT_OFFSET));
+        record.putInt(CRC_OFFSET, (int) crc.getValue());
+        return record;
+    }
+
+    private void disable(IOException e) {
+        System.err.printf("Disk cache disabled: %s%n", e.getMessage());
+        enabled = false;
+        index.clear();
+        mapped = null;
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package krik.java.spotify_api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+public class HttpTransport implements AutoCloseable {
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final boolean compression;
+
+    public HttpTransport(ServiceOptions options) {
+        this.executor = TaskExecutors.newPerTaskExecutor("spotify-http");
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(options.connectTimeoutSeconds()))
+                .executor(executor)
+                .build();
+        this.requestTimeout = Duration.ofSeconds(options.requestTimeoutSeconds());
+        this.compression = options.compression();
+    }
+
+    HttpClient client() {
+        return client;
+    }
+
+    ExecutorService executor() {
+        return executor;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    HttpRequest.Builder newRequest(URI uri) {
+        var builder = HttpRequest.newBuilder(uri).timeout(requestTimeout);
+        if (compression) {
+            builder.header("Accept-Encoding", ACCEPT_ENCODING);
+        }
+        return builder;
+    }
+
+    static InputStream decodeBody(InputStream body, HttpHeaders headers) {
+        var encoding = headers.firstValue("Content-Encoding").orElse("identity").strip().toLowerCase(Locale.ROOT);
+        try {
+            return switch (encoding) {
+                case "gzip", "x-gzip" -> new GZIPInputStream(body, BUFFER_SIZE);
+                case "deflate" -> inflate(body);
+                default -> body;
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream inflate(InputStream body) throws IOException {
+        // "deflate" is meant to be zlib-wrapped, but some servers send a raw deflate stream
+        var in = new PushbackInputStream(body, 2);
+        byte[] header = in.readNBytes(2);
+        in.unread(header);
+        boolean isZlib = header.length == 2 &&
+                (header[0] & 0x0f) == 8 &&
+                ((header[0] & 0xff) << 8 | (header[1] & 0xff)) % 31 == 0;
+        return new InflaterInputStream(in, new Inflater(!isZlib), BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,10 @@
+package krik.java.spotify_api;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+@FunctionalInterface
+interface JsonDecoder<T> {
+    T decode(JsonReader reader) throws IOException;
+}
@@ -0,0 +1,63 @@
+package krik.java.spotify_api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+record Page<E>(List<E> items, int offset, int limit, int total, String next) {
+    static final int UNKNOWN = -1;
+
+    boolean hasOffsets() {
+        return offset != UNKNOWN && limit > 0 && total != UNKNOWN;
+    }
+
+    static <E> Page<E> fromJsonReader(JsonReader reader, JsonDecoder<E> itemDecoder) throws IOException {
+        List<E> items = List.of();
+        int offset = UNKNOWN;
+        int limit = UNKNOWN;
+        int total = UNKNOWN;
+        String next = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "items" -> {
+                    items = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        items.add(itemDecoder.decode(reader));
+                    }
+                    reader.endArray();
+                }
+                case "offset" -> offset = nextInt(reader);
+                case "limit" -> limit = nextInt(reader);
+                case "total" -> total = nextInt(reader);
+                case "next" -> next = nextString(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new Page<>(Collections.unmodifiableList(items), offset, limit, total, next);
+    }
+
+    private static int nextInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return UNKNOWN;
+        }
+        return reader.nextInt();
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,147 @@
+package krik.java.spotify_api;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+class PagePublisher<E> implements Flow.Publisher<E> {
+    private final String firstPagePath;
+    private final Function<String, CompletableFuture<Page<E>>> pageLoader;
+
+    PagePublisher(String firstPagePath, Function<String, CompletableFuture<Page<E>>> pageLoader) {
+        this.firstPagePath = firstPagePath;
+        this.pageLoader = pageLoader;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super E> subscriber) {
+        var subscription = new PageSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    private class PageSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super E> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private final Queue<E> bufferedItems = new ArrayDeque<>();
+        private volatile String nextPagePath = firstPagePath;
+        private volatile CompletableFuture<Page<E>> loadingPage;
+        private volatile Page<E> loadedPage;
+        private volatile Throwable error;
+        private volatile boolean cancelled = false;
+        private boolean done = false;
+
+        PageSubscription(Flow.Subscriber<? super E> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested %d items, the demand must be positive".formatted(n));
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            var page = loadingPage;
+            if (page != null) {
+                page.cancel(false);
+            }
+            drain();
+        }
+
+        // only the thread that moves pendingDrains from zero signals the subscriber, the others leave the work to it
+        private void drain() {
+            if (pendingDrains.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                emit();
+            } while (pendingDrains.decrementAndGet() != 0);
+        }
+
+        private void emit() {
+            if (done) {
+                return;
+            }
+            // the loader publishes its results before clearing loadingPage, so read that first
+            boolean isLoading = loadingPage != null;
+            var loaded = loadedPage;
+            if (loaded != null) {
+                loadedPage = null;
+                bufferedItems.addAll(loaded.items());
+            }
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (error != null) {
+                finish();
+                subscriber.onError(error);
+                return;
+            }
+
+            while (demand.get() > 0 && !bufferedItems.isEmpty() && !cancelled) {
+                demand.decrementAndGet();
+                subscriber.onNext(bufferedItems.poll());
+            }
+
+            if (!isLoading && nextPagePath == null && bufferedItems.isEmpty() && !cancelled) {
+                finish();
+                subscriber.onComplete();
+            } else if (!isLoading && nextPagePath != null && demand.get() > bufferedItems.size() && !cancelled) {
+                loadNextPage();
+            }
+        }
+
+        private void loadNextPage() {
+            var page = pageLoader.apply(nextPagePath);
+            loadingPage = page;
+            if (cancelled) {
+                page.cancel(false);
+            }
+            page.whenComplete((loaded, e) -> {
+                if (e != null) {
+                    if (!cancelled) {
+                        error = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    }
+                } else {
+                    nextPagePath = getNextPagePath(loaded);
+                    loadedPage = loaded;
+                }
+                loadingPage = null;
+                drain();
+            });
+        }
+
+        private void finish() {
+            done = true;
+            bufferedItems.clear();
+            nextPagePath = null;
+            loadedPage = null;
+        }
+    }
+
+    private String getNextPagePath(Page<E> page) {
+        if (page.next() != null || !page.hasOffsets()) {
+            return page.next();
+        }
+        int nextOffset = page.offset() + page.limit();
+        if (nextOffset >= page.total() || page.items().isEmpty()) {
+            return null;
+        }
+        return "%s?offset=%d&limit=%d".formatted(URI.create(firstPagePath).getPath(), nextOffset, page.limit());
+    }
+}
@@ -0,0 +1,74 @@
+package krik.java.spotify_api;
+
+import krik.java.pager.PagedSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+
+class RemotePagedSource<E> implements PagedSource<E> {
+    private final BiFunction<Integer, Integer, Page<E>> pageLoader;
+    private final int pageLimit;
+    private final List<E>[] windowPages;
+    private final int[] windowPageNumbers;
+    private int total = Page.UNKNOWN;
+    // without a total in the responses, a lower bound that grows as the pages are loaded
+    private int knownSize = Page.UNKNOWN;
+
+    @SuppressWarnings("unchecked")
+    RemotePagedSource(BiFunction<Integer, Integer, Page<E>> pageLoader, int pageLimit, int windowSize) {
+        this.pageLoader = pageLoader;
+        this.pageLimit = pageLimit;
+        this.windowPages = (List<E>[]) new List<?>[windowSize];
+        this.windowPageNumbers = new int[windowSize];
+        Arrays.fill(windowPageNumbers, -1);
+    }
+
+    @Override
+    public synchronized int size() {
+        if (total == Page.UNKNOWN && knownSize == Page.UNKNOWN) {
+            loadPage(0);
+        }
+        return total != Page.UNKNOWN ? total : knownSize;
+    }
+
+    @Override
+    public synchronized List<E> getItems(int fromIndex, int toIndex) {
+        List<E> items = new ArrayList<>(Math.max(0, toIndex - fromIndex));
+        int index = fromIndex;
+        while (index < toIndex) {
+            int pageNumber = index / pageLimit;
+            var page = loadPage(pageNumber);
+            int pageFirstItem = pageNumber * pageLimit;
+            int from = index - pageFirstItem;
+            int to = Math.min(page.size(), toIndex - pageFirstItem);
+            if (from >= to) {
+                break;
+            }
+            items.addAll(page.subList(from, to));
+            index = pageFirstItem + to;
+        }
+        return items;
+    }
+
+    private List<E> loadPage(int pageNumber) {
+        int slot = pageNumber % windowPages.length;
+        if (windowPageNumbers[slot] != pageNumber) {
+            var page = pageLoader.apply(pageNumber * pageLimit, pageLimit);
+            if (page.total() != Page.UNKNOWN) {
+                total = page.total();
+            } else {
+                int loadedSize = pageNumber * pageLimit + page.items().size();
+                if (page.next() == null) {
+                    total = loadedSize;
+                } else {
+                    knownSize = Math.max(knownSize, loadedSize + 1);
+                }
+            }
+            windowPages[slot] = page.items();
+            windowPageNumbers[slot] = pageNumber;
+        }
+        return windowPages[slot];
+    }
+}
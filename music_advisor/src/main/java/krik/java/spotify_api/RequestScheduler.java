@@ -0,0 +1,382 @@
+package krik.java.spotify_api;
+
+import krik.java.metrics.EndpointMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+class RequestScheduler {
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final double MAX_HEDGE_CREDITS = 10;
+    private static final long MIN_HEDGE_SAMPLES = 20;
+
+    private static class Task {
+        final Supplier<HttpRequest> requestFactory;
+        final EndpointMetrics metrics;
+        final CompletableFuture<HttpResponse<InputStream>> result = new CompletableFuture<>();
+        final List<CompletableFuture<HttpResponse<InputStream>>> exchanges = new ArrayList<>(2);
+        int attempt = 0;
+        boolean hedged = false;
+        boolean settled = false;
+
+        Task(Supplier<HttpRequest> requestFactory, EndpointMetrics metrics) {
+            this.requestFactory = requestFactory;
+            this.metrics = metrics;
+        }
+    }
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "request-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HttpClient client;
+    private final int maxRetries;
+    private final int maxConcurrency;
+    private final double ratePerSecond;
+    private final double hedgeBudget;
+    private final Integer hedgeDelayMillis;
+    private final Deque<Task> queue = new ArrayDeque<>();
+    private double concurrencyLimit;
+    private int inFlight = 0;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long pausedUntilNanos = System.nanoTime();
+    private long lastDecreaseNanos = System.nanoTime();
+    private long decreaseHoldUntilNanos = System.nanoTime();
+    private double hedgeCredits = 0;
+    private ScheduledFuture<?> wakeUp;
+    private boolean closed = false;
+
+    RequestScheduler(HttpClient client, int maxConcurrency, double ratePerSecond, int maxRetries) {
+        this(client, maxConcurrency, ratePerSecond, maxRetries, 0, null);
+    }
+
+    RequestScheduler(
+            HttpClient client,
+            int maxConcurrency,
+            double ratePerSecond,
+            int maxRetries,
+            int hedgeBudgetPercent,
+            Integer hedgeDelayMillis
+    )
+    {
+        this.client = client;
+        this.maxConcurrency = maxConcurrency;
+        this.ratePerSecond = ratePerSecond;
+        this.maxRetries = maxRetries;
+        this.hedgeBudget = hedgeBudgetPercent / 100.0;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.concurrencyLimit = maxConcurrency;
+        this.tokens = Math.max(1, ratePerSecond);
+    }
+
+    CompletableFuture<HttpResponse<InputStream>> send(HttpRequest request) {
+        return send(() -> request, null);
+    }
+
+    CompletableFuture<HttpResponse<InputStream>> send(Supplier<HttpRequest> requestFactory, EndpointMetrics metrics) {
+        var task = new Task(requestFactory, metrics);
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new CancellationException("Request scheduler is closed"));
+            }
+            queue.addLast(task);
+        }
+        task.result.whenComplete((ignored, e) -> {
+            if (task.result.isCancelled()) {
+                abandon(task);
+            }
+        });
+        dispatch();
+        return task.result;
+    }
+
+    void close() {
+        List<Task> pending;
+        synchronized (this) {
+            closed = true;
+            if (wakeUp != null) {
+                wakeUp.cancel(false);
+            }
+            pending = new ArrayList<>(queue);
+            queue.clear();
+        }
+        var error = new CancellationException("Request scheduler is closed");
+        pending.forEach(task -> task.result.completeExceptionally(error));
+    }
+
+    private void abandon(Task task) {
+        List<CompletableFuture<HttpResponse<InputStream>>> exchanges;
+        synchronized (this) {
+            queue.remove(task);
+            exchanges = new ArrayList<>(task.exchanges);
+        }
+        exchanges.forEach(exchange -> exchange.cancel(true));
+    }
+
+    synchronized int getConcurrencyLimit() {
+        return (int) concurrencyLimit;
+    }
+
+    private void dispatch() {
+        List<Task> ready = new ArrayList<>();
+        synchronized (this) {
+            while (!queue.isEmpty() && inFlight < (int) concurrencyLimit) {
+                if (queue.peekFirst().result.isDone()) {
+                    queue.pollFirst();
+                    continue;
+                }
+                long waitNanos = pausedUntilNanos - System.nanoTime();
+                if (waitNanos <= 0) {
+                    waitNanos = takeToken();
+                }
+                if (waitNanos > 0) {
+                    scheduleWakeUp(waitNanos);
+                    break;
+                }
+                inFlight++;
+                hedgeCredits = Math.min(MAX_HEDGE_CREDITS, hedgeCredits + hedgeBudget);
+                ready.add(queue.pollFirst());
+            }
+        }
+
+        for (var task : ready) {
+            HttpRequest request;
+            try {
+                request = task.requestFactory.get();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    inFlight--;
+                }
+                task.result.completeExceptionally(e);
+                dispatch();
+                continue;
+            }
+            sendExchange(task, request);
+            scheduleHedge(task);
+        }
+    }
+
+    private void sendExchange(Task task, HttpRequest request) {
+        long startedAtNanos = System.nanoTime();
+        var exchange = client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        synchronized (this) {
+            task.exchanges.add(exchange);
+        }
+        if (task.result.isCancelled()) {
+            exchange.cancel(true);
+        }
+        exchange.whenComplete((response, e) -> onComplete(task, exchange, startedAtNanos, response, e));
+    }
+
+    private void scheduleHedge(Task task) {
+        if (hedgeBudget <= 0 || task.metrics == null) {
+            return;
+        }
+        long delayMillis;
+        if (hedgeDelayMillis != null) {
+            delayMillis = hedgeDelayMillis;
+        } else if (task.metrics.getRequests() >= MIN_HEDGE_SAMPLES) {
+            delayMillis = (long) Math.ceil(task.metrics.getLatencyP95Millis());
+        } else {
+            return;
+        }
+        int attempt = task.attempt;
+        TIMER.schedule(() -> hedge(task, attempt), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void hedge(Task task, int attempt) {
+        synchronized (this) {
+            boolean isStillWaiting = !task.settled && !task.result.isDone()
+                    && task.attempt == attempt && task.exchanges.size() == 1;
+            if (!isStillWaiting || task.hedged || hedgeCredits < 1 || pausedUntilNanos > System.nanoTime()) {
+                return;
+            }
+            // a hedge is extra load on the API, so it must fit in both the concurrency limit and the rate limit
+            if (inFlight >= (int) concurrencyLimit || takeToken() > 0) {
+                return;
+            }
+            hedgeCredits -= 1;
+            task.hedged = true;
+            inFlight++;
+        }
+
+        HttpRequest request;
+        try {
+            request = task.requestFactory.get();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                inFlight--;
+            }
+            return;
+        }
+        task.metrics.recordHedge();
+        sendExchange(task, request);
+    }
+
+    private void onComplete(
+            Task task,
+            CompletableFuture<HttpResponse<InputStream>> exchange,
+            long startedAtNanos,
+            HttpResponse<InputStream> response,
+            Throwable error
+    )
+    {
+        boolean isCancelled = error instanceof CancellationException;
+        boolean isThrottled = response != null && response.statusCode() == 429;
+        boolean isServerError = error != null || response.statusCode() >= 500;
+        boolean isFailure = isThrottled || isServerError;
+        boolean isSuperseded;
+        boolean retry = false;
+        List<CompletableFuture<HttpResponse<InputStream>>> losers = List.of();
+
+        synchronized (this) {
+            inFlight--;
+            task.exchanges.remove(exchange);
+            if (isThrottled) {
+                onThrottled(startedAtNanos, response);
+            } else if (!isServerError) {
+                concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+            }
+
+            // a hedged twin has already answered, or is still running and may yet succeed
+            isSuperseded = task.settled || task.result.isDone() || isFailure && !task.exchanges.isEmpty();
+            if (!isSuperseded) {
+                retry = isFailure && task.attempt < maxRetries;
+                task.settled = !retry;
+                losers = new ArrayList<>(task.exchanges);
+            }
+
+            if (retry) {
+                long delayMillis = getBackoffMillis(task.attempt);
+                if (isThrottled) {
+                    delayMillis = getRetryAfterMillis(response).orElse(delayMillis);
+                    pausedUntilNanos = Math.max(
+                            pausedUntilNanos,
+                            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis)
+                    );
+                }
+                task.attempt++;
+                task.hedged = false;
+                TIMER.schedule(() -> requeue(task), delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (task.metrics != null && !isCancelled) {
+            recordMetrics(task, startedAtNanos, response, retry);
+        }
+        // free the losing twin and the queue before dependent stages run on this thread
+        losers.forEach(loser -> loser.cancel(true));
+        dispatch();
+        if (isSuperseded || retry) {
+            if (response != null) {
+                closeBody(response);
+            }
+        } else if (error != null) {
+            task.result.completeExceptionally(error);
+        } else if (!task.result.complete(response)) {
+            closeBody(response);
+        }
+    }
+
+    private void onThrottled(long startedAtNanos, HttpResponse<InputStream> response) {
+        // a burst of 429s is one congestion event: requests sent before the last decrease, or answered
+        // while its Retry-After is still running, saw the old limit and must not halve it again
+        long now = System.nanoTime();
+        if (startedAtNanos - lastDecreaseNanos < 0 || now - decreaseHoldUntilNanos < 0) {
+            return;
+        }
+        concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+        lastDecreaseNanos = now;
+        decreaseHoldUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(getRetryAfterMillis(response).orElse(0));
+    }
+
+    private static void recordMetrics(Task task, long startedAtNanos, HttpResponse<InputStream> response, boolean retry) {
+        task.metrics.recordRequest(System.nanoTime() - startedAtNanos);
+        if (retry) {
+            task.metrics.recordRetry();
+        } else if (response == null || response.statusCode() >= 400) {
+            task.metrics.recordError();
+        }
+    }
+
+    private void requeue(Task task) {
+        if (task.result.isDone()) {
+            return;
+        }
+        boolean isClosed;
+        synchronized (this) {
+            isClosed = closed;
+            if (!isClosed) {
+                queue.addFirst(task);
+            }
+        }
+        if (isClosed) {
+            task.result.completeExceptionally(new CancellationException("Request scheduler is closed"));
+            return;
+        }
+        dispatch();
+    }
+
+    private long takeToken() {
+        long now = System.nanoTime();
+        double burst = Math.max(1, ratePerSecond);
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1e9 * ratePerSecond);
+        lastRefillNanos = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) ((1 - tokens) / ratePerSecond * 1e9);
+    }
+
+    private void scheduleWakeUp(long delayNanos) {
+        if (wakeUp != null && !wakeUp.isDone()) {
+            return;
+        }
+        wakeUp = TIMER.schedule(this::dispatch, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static long getBackoffMillis(int attempt) {
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    private static OptionalLong getRetryAfterMillis(HttpResponse<?> response) {
+        var retryAfter = response.headers().firstValue("Retry-After");
+        if (retryAfter.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(Math.max(0, Long.parseLong(retryAfter.get().strip())) * 1000);
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    private static void closeBody(HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+        } catch (IOException ignored) {
+        }
+    }
+}
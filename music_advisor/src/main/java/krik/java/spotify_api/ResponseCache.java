@@ -0,0 +1,110 @@
+package krik.java.spotify_api;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+class ResponseCache {
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    // restored entries come from the disk cache and haven't been confirmed by the server in this process yet
+    record Entry(byte[] body, String etag, long expiresAtMillis, boolean restored) {
+        boolean isFresh() {
+            return System.currentTimeMillis() < expiresAtMillis;
+        }
+
+        long weight() {
+            return body.length + (etag == null ? 0 : 2L * etag.length()) + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+
+    private final long maxBytes;
+    private final long defaultTtlMillis;
+    private final Map<URI, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes = 0;
+
+    ResponseCache(long maxBytes, long defaultTtlMillis) {
+        this.maxBytes = maxBytes;
+        this.defaultTtlMillis = defaultTtlMillis;
+    }
+
+    synchronized Entry get(URI uri) {
+        return entries.get(uri);
+    }
+
+    boolean isCacheable(HttpHeaders headers) {
+        return getExpiresAtMillis(headers) != null;
+    }
+
+    Entry put(URI uri, byte[] body, HttpHeaders headers) {
+        var expiresAt = getExpiresAtMillis(headers);
+        if (expiresAt == null) {
+            return null;
+        }
+        var entry = new Entry(body, headers.firstValue("ETag").orElse(null), expiresAt, false);
+        put(uri, entry);
+        return entry;
+    }
+
+    Entry restore(URI uri, byte[] body, String etag, long storedAtMillis) {
+        var entry = new Entry(body, etag, storedAtMillis + defaultTtlMillis, true);
+        put(uri, entry);
+        return entry;
+    }
+
+    Entry revalidate(URI uri, Entry entry, HttpHeaders headers) {
+        var expiresAt = getExpiresAtMillis(headers);
+        var revalidated = new Entry(
+                entry.body(),
+                headers.firstValue("ETag").orElse(entry.etag()),
+                expiresAt == null ? System.currentTimeMillis() : expiresAt,
+                false
+        );
+        put(uri, revalidated);
+        return revalidated;
+    }
+
+    private synchronized void put(URI uri, Entry entry) {
+        var previous = entries.remove(uri);
+        if (previous != null) {
+            usedBytes -= previous.weight();
+        }
+        if (entry.weight() > maxBytes) {
+            return;
+        }
+
+        entries.put(uri, entry);
+        usedBytes += entry.weight();
+
+        var iterator = entries.values().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            usedBytes -= iterator.next().weight();
+            iterator.remove();
+        }
+    }
+
+    private Long getExpiresAtMillis(HttpHeaders headers) {
+        long now = System.currentTimeMillis();
+        long ttlMillis = defaultTtlMillis;
+
+        for (var directive : headers.firstValue("Cache-Control").orElse("").split(",")) {
+            directive = directive.strip().toLowerCase(Locale.ROOT);
+            if (directive.equals("no-store")) {
+                return null;
+            } else if (directive.equals("no-cache")) {
+                ttlMillis = 0;
+            } else if (directive.startsWith("max-age=")) {
+                try {
+                    ttlMillis = Long.parseLong(directive.substring("max-age=".length())) * 1000;
+                } catch (NumberFormatException e) {
+                    ttlMillis = 0;
+                }
+            }
+        }
+
+        long ageMillis = headers.firstValueAsLong("Age").orElse(0) * 1000;
+        return now + Math.max(0, ttlMillis - ageMillis);
+    }
+}
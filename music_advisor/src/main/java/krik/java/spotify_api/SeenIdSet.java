@@ -0,0 +1,133 @@
+package krik.java.spotify_api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+
+class SeenIdSet {
+    private static final int MAGIC = 0x5345454e;
+    private static final long EMPTY = 0;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Path path;
+    private long[] slots = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private SeenIdSet(Path path) {
+        this.path = path;
+    }
+
+    static SeenIdSet open(Path path) {
+        var seenIds = new SeenIdSet(path);
+        if (path != null && Files.isRegularFile(path)) {
+            seenIds.load();
+        }
+        return seenIds;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized boolean contains(String id) {
+        long hash = hash(id);
+        int mask = slots.length - 1;
+        for (int i = (int) hash & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void addAll(Collection<String> ids) {
+        for (var id : ids) {
+            addHash(hash(id));
+        }
+    }
+
+    synchronized void save() {
+        if (path == null) {
+            return;
+        }
+        try {
+            var directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            var tmp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(size);
+                for (long slot : slots) {
+                    if (slot != EMPTY) {
+                        out.writeLong(slot);
+                    }
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.printf("Can't store seen ids: %s%n", e.getMessage());
+        }
+    }
+
+    private void load() {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("unknown file format");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                addHash(in.readLong());
+            }
+        } catch (IOException e) {
+            System.err.printf("Can't read seen ids, starting from scratch: %s%n", e.getMessage());
+            slots = new long[INITIAL_CAPACITY];
+            size = 0;
+        }
+    }
+
+    private void addHash(long hash) {
+        if ((size + 1) * 4L > slots.length * 3L) {
+            resize();
+        }
+        int mask = slots.length - 1;
+        int i = (int) hash & mask;
+        while (slots[i] != EMPTY) {
+            if (slots[i] == hash) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = hash;
+        size++;
+    }
+
+    private void resize() {
+        var oldSlots = slots;
+        slots = new long[oldSlots.length * 2];
+        size = 0;
+        for (long slot : oldSlots) {
+            if (slot != EMPTY) {
+                addHash(slot);
+            }
+        }
+    }
+
+    private static long hash(String id) {
+        // 64-bit FNV-1a, finished with a murmur3 mix so the low bits are usable as a slot index
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+}
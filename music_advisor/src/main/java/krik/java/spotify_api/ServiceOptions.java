@@ -0,0 +1,72 @@
+package krik.java.spotify_api;
+
+public record ServiceOptions(
+        Integer maxConcurrency,
+        Integer cacheSizeMb,
+        Integer cacheTtlSeconds,
+        String diskCacheDir,
+        Integer diskCacheSizeMb,
+        Integer categoryIndexTtlSeconds,
+        Integer rateLimit,
+        Integer maxRetries,
+        Integer crawlParallelism,
+        Integer connectTimeoutSeconds,
+        Integer requestTimeoutSeconds,
+        Boolean compression,
+        Integer hedgeBudgetPercent,
+        Integer hedgeDelayMillis
+) {
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final int DEFAULT_CACHE_SIZE_MB = 32;
+    private static final int DEFAULT_CACHE_TTL_SECONDS = 300;
+    private static final int DEFAULT_DISK_CACHE_SIZE_MB = 64;
+    private static final int DEFAULT_CATEGORY_INDEX_TTL_SECONDS = 3600;
+    private static final int DEFAULT_RATE_LIMIT = 20;
+    private static final int DEFAULT_MAX_RETRIES = 4;
+    private static final int DEFAULT_CRAWL_PARALLELISM = 4;
+    private static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 10;
+    private static final int DEFAULT_REQUEST_TIMEOUT_SECONDS = 30;
+    private static final int DEFAULT_HEDGE_BUDGET_PERCENT = 0;
+
+    public ServiceOptions {
+        maxConcurrency = maxConcurrency == null ? DEFAULT_MAX_CONCURRENCY : maxConcurrency;
+        cacheSizeMb = cacheSizeMb == null ? DEFAULT_CACHE_SIZE_MB : cacheSizeMb;
+        cacheTtlSeconds = cacheTtlSeconds == null ? DEFAULT_CACHE_TTL_SECONDS : cacheTtlSeconds;
+        diskCacheSizeMb = diskCacheSizeMb == null ? DEFAULT_DISK_CACHE_SIZE_MB : diskCacheSizeMb;
+        categoryIndexTtlSeconds = categoryIndexTtlSeconds == null ?
+                DEFAULT_CATEGORY_INDEX_TTL_SECONDS :
+                categoryIndexTtlSeconds;
+        rateLimit = rateLimit == null ? DEFAULT_RATE_LIMIT : rateLimit;
+        maxRetries = maxRetries == null ? DEFAULT_MAX_RETRIES : maxRetries;
+        crawlParallelism = crawlParallelism == null ? DEFAULT_CRAWL_PARALLELISM : crawlParallelism;
+        connectTimeoutSeconds = connectTimeoutSeconds == null ? DEFAULT_CONNECT_TIMEOUT_SECONDS : connectTimeoutSeconds;
+        requestTimeoutSeconds = requestTimeoutSeconds == null ? DEFAULT_REQUEST_TIMEOUT_SECONDS : requestTimeoutSeconds;
+        compression = compression == null || compression;
+        hedgeBudgetPercent = hedgeBudgetPercent == null ? DEFAULT_HEDGE_BUDGET_PERCENT : hedgeBudgetPercent;
+        if (maxConcurrency < 1 || rateLimit < 1 || crawlParallelism < 1) {
+            throw new IllegalArgumentException("maxConcurrency, rateLimit and crawlParallelism must be positive");
+        }
+        if (connectTimeoutSeconds < 1 || requestTimeoutSeconds < 1) {
+            throw new IllegalArgumentException("timeouts must be positive");
+        }
+        if (hedgeBudgetPercent < 0 || hedgeBudgetPercent > 100) {
+            throw new IllegalArgumentException("hedgeBudgetPercent must be between 0 and 100");
+        }
+        if (hedgeDelayMillis != null && hedgeDelayMillis < 1) {
+            throw new IllegalArgumentException("hedgeDelayMillis must be positive");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        if (cacheSizeMb < 0 || cacheTtlSeconds < 0 || diskCacheSizeMb < 0 || categoryIndexTtlSeconds < 0) {
+            throw new IllegalArgumentException("cache size and ttl must not be negative");
+        }
+        if (diskCacheSizeMb > 1024) {
+            throw new IllegalArgumentException("disk cache can't be larger than 1024 MB");
+        }
+    }
+
+    public static ServiceOptions defaults() {
+        return new ServiceOptions(null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+}
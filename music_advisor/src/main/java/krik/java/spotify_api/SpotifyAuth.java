@@ -4,17 +4,20 @@ import com.google.gson.FieldNamingPolicy;
 import com.google.gson.GsonBuilder;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import krik.java.metrics.MetricsRegistry;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -25,16 +28,46 @@ public class SpotifyAuth {
     private static final String OAUTH_CLIENT_ID = "test";
     private static final String OAUTH_CLIENT_SECRET = "test";
     private static final String DEFAULT_BASE_OAUTH_URL = "https://accounts.spotify.com";
+    private static final String TOKEN_ENDPOINT = "token";
 
     private final URI oauthBaseUrl;
     private final Consumer<String> displayAuthLinkF;
+    private final CredentialsStore credentialsStore;
+    private final HttpTransport transport;
     private String authorizationCode = null;
 
-    public record AccessTokenInfo(String accessToken, String tokenType, int expiresIn) {}
+    public record AccessTokenInfo(String accessToken, String tokenType, int expiresIn, String refreshToken) {
+        // the refresh token is long-lived, keep it out of anything that prints the record
+        @Override
+        public String toString() {
+            return "AccessTokenInfo[accessToken=%s, tokenType=%s, expiresIn=%d, refreshToken=%s]".formatted(
+                    accessToken,
+                    tokenType,
+                    expiresIn,
+                    refreshToken == null ? null : "<redacted>"
+            );
+        }
+    }
 
     public SpotifyAuth(String oauthBaseUrl, Consumer<String> displayAuthLinkF) {
+        this(oauthBaseUrl, null, displayAuthLinkF);
+    }
+
+    public SpotifyAuth(String oauthBaseUrl, String credentialsPath, Consumer<String> displayAuthLinkF) {
+        this(oauthBaseUrl, credentialsPath, new HttpTransport(ServiceOptions.defaults()), displayAuthLinkF);
+    }
+
+    public SpotifyAuth(
+            String oauthBaseUrl,
+            String credentialsPath,
+            HttpTransport transport,
+            Consumer<String> displayAuthLinkF
+    )
+    {
         this.oauthBaseUrl = URI.create(oauthBaseUrl == null ? DEFAULT_BASE_OAUTH_URL : oauthBaseUrl);
         this.displayAuthLinkF = displayAuthLinkF;
+        this.credentialsStore = new CredentialsStore(credentialsPath);
+        this.transport = transport;
     }
 
     public AccessTokenInfo getAccessTokenInfo() {
@@ -44,6 +77,27 @@ public class SpotifyAuth {
         return accessTokenInfo;
     }
 
+    public TokenManager authorize() {
+        authorizationCode = null;
+        var credentials = TokenManager.toCredentials(getAccessTokenInfo(), null);
+        credentialsStore.save(credentials);
+        return new TokenManager(this, credentialsStore, credentials);
+    }
+
+    public Optional<TokenManager> restoreSession() {
+        return credentialsStore.load()
+                .filter(credentials -> credentials.refreshToken() != null
+                        || credentials.expiresAtMillis() > System.currentTimeMillis())
+                .map(credentials -> new TokenManager(this, credentialsStore, credentials));
+    }
+
+    AccessTokenInfo refreshAccessTokenInfo(String refreshToken) {
+        return requestToken(String.join("&",
+                "grant_type=refresh_token",
+                "refresh_token=" + URLEncoder.encode(refreshToken, StandardCharsets.UTF_8)
+        ));
+    }
+
     void waitForAuthorizationCode() {
         HttpServer authorizationCodeListener = createAuthorizationCodeListener();
         authorizationCodeListener.start();
@@ -101,22 +155,7 @@ public class SpotifyAuth {
             return;
         }
 
-        var query = exchange.getRequestURI().getQuery();
-        query = query == null ? "" : query;
-
-        String code = null;
-        String paramsSplitRegexp = "[&?]";  // split by `?` here in addition to `&`
-                                            // because of the bug in the testing system
-        for (var param : query.split(paramsSplitRegexp)) {
-            var paramKeyValue = param.split("=", 2);
-            if (paramKeyValue.length != 2) {
-                continue;
-            }
-            if (Objects.equals(paramKeyValue[0], AUTHORIZATION_CODE_QUERY_PARAM)) {
-                code = paramKeyValue[1];
-                break;
-            }
-        }
+        String code = findQueryParam(exchange.getRequestURI().getQuery(), AUTHORIZATION_CODE_QUERY_PARAM);
 
         boolean codeWasFound = code != null;
         sendResponse.accept(
@@ -133,43 +172,74 @@ public class SpotifyAuth {
         }
     }
 
+    static String findQueryParam(String query, String paramName) {
+        query = query == null ? "" : query;
+
+        String paramsSplitRegexp = "[&?]";  // split by `?` here in addition to `&`
+                                            // because of the bug in the testing system
+        for (var param : query.split(paramsSplitRegexp)) {
+            var paramKeyValue = param.split("=", 2);
+            if (paramKeyValue.length != 2) {
+                continue;
+            }
+            if (Objects.equals(paramKeyValue[0], paramName)) {
+                return paramKeyValue[1];
+            }
+        }
+        return null;
+    }
+
     private AccessTokenInfo requestAccessTokenInfo() {
         if (authorizationCode == null) {
             throw new RuntimeException("You need to get an authorization code first");
         }
 
-        String auth = Base64.getEncoder()
-                .encodeToString("%s:%s".formatted(OAUTH_CLIENT_ID, OAUTH_CLIENT_SECRET).getBytes());
-        String requestBody = String.join("&",
+        System.out.println("making http request for access_token...");
+        return requestToken(String.join("&",
                 "code=" + URLEncoder.encode(authorizationCode, StandardCharsets.UTF_8),
                 "redirect_uri=" + URLEncoder.encode(OAUTH_REDIRECT_URL, StandardCharsets.UTF_8),
                 "grant_type=authorization_code"
-        );
-        HttpRequest accessTokenRequest = HttpRequest.newBuilder()
-                .uri(URI.create("%s/api/token".formatted(oauthBaseUrl)))
+        ));
+    }
+
+    private AccessTokenInfo requestToken(String requestBody) {
+        String auth = Base64.getEncoder()
+                .encodeToString("%s:%s".formatted(OAUTH_CLIENT_ID, OAUTH_CLIENT_SECRET).getBytes());
+        HttpRequest accessTokenRequest = transport.newRequest(URI.create("%s/api/token".formatted(oauthBaseUrl)))
                 .header("content-type", "application/x-www-form-urlencoded")
                 .header("Authorization", "Basic %s".formatted(auth))
                 .POST(HttpRequest.BodyPublishers.ofString(requestBody))
                 .build();
 
-        HttpClient client = HttpClient.newHttpClient();
-        HttpResponse<String> response;
-
-        System.out.println("making http request for access_token...");
+        var metrics = MetricsRegistry.getDefault().getEndpoint(TOKEN_ENDPOINT);
+        HttpResponse<InputStream> response;
+        String body;
+        long startedAt = System.nanoTime();
         try {
-            response = client.send(accessTokenRequest, HttpResponse.BodyHandlers.ofString());
-        } catch (IOException | InterruptedException e) {
+            response = transport.client().send(accessTokenRequest, HttpResponse.BodyHandlers.ofInputStream());
+            var responseBody = new CountingInputStream(response.body(), metrics::recordBytesReceived);
+            try (var decodedBody = HttpTransport.decodeBody(responseBody, response.headers())) {
+                body = new String(decodedBody.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } catch (IOException | InterruptedException | UncheckedIOException e) {
+            metrics.recordRequest(System.nanoTime() - startedAt);
+            metrics.recordError();
             throw new RuntimeException(e);
         }
+        metrics.recordRequest(System.nanoTime() - startedAt);
 
         if (response.statusCode() != 200) {
-            throw new RuntimeException(response.body());
+            metrics.recordError();
+            throw new RuntimeException(body);
         }
 
+        long decodeStartedAt = System.nanoTime();
         var gson = new GsonBuilder()
                 .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
                 .create();
-        return gson.fromJson(response.body(), AccessTokenInfo.class);
+        var accessTokenInfo = gson.fromJson(body, AccessTokenInfo.class);
+        metrics.recordDecodeTime(System.nanoTime() - decodeStartedAt);
+        return accessTokenInfo;
     }
 
     private String getAuthLink() {
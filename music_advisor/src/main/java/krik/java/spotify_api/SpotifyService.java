@@ -1,22 +1,74 @@
 package krik.java.spotify_api;
 
-import com.google.gson.*;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import krik.java.advisor.ArtistGraph;
+import krik.java.metrics.EndpointMetrics;
+import krik.java.metrics.MetricsRegistry;
+import krik.java.pager.PagedSource;
+import krik.java.search.SearchIndex;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.http.HttpClient;
+import java.net.URLEncoder;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
-public class SpotifyService {
+public class SpotifyService implements AutoCloseable {
     private static final String DEFAULT_API_URL = "https://api.spotify.com";
+    private static final int REMOTE_PAGE_LIMIT = 20;
+    private static final int LOADED_PAGES_WINDOW = 4;
+    private static final String BROWSE_PATH_PREFIX = "/v1/browse/";
+    private static final String SEEN_NEW_RELEASES_FILE_NAME = "new-releases.seen";
+    private static final String ARTIST_WEB_URL_PREFIX = "https://open.spotify.com/artist/";
+    private static final Pattern CATEGORY_ID_PATTERN = Pattern.compile("^categories/[^/]+/");
+    private static final JsonDecoder<Page<Category>> CATEGORY_PAGE_DECODER =
+            reader -> Page.fromJsonReader(reader, Category::fromJsonReader);
 
     public record Playlist(String id, String name, String webUrl) {
+        private static final String WEB_URL_PREFIX = "https://open.spotify.com/playlist/";
+
+        public Playlist {
+            webUrl = isDerivedWebUrl(WEB_URL_PREFIX, id, webUrl) ? null : webUrl;
+        }
+
+        @Override
+        public String webUrl() {
+            return deriveWebUrl(WEB_URL_PREFIX, id, webUrl);
+        }
+
+        String storedWebUrl() {
+            return webUrl;
+        }
+
         public static Playlist fromJsonObject(JsonObject jsonObject) {
             return new Playlist(
                     jsonObject.get("id").getAsString(),
@@ -24,9 +76,43 @@ public class SpotifyService {
                     jsonObject.getAsJsonObject("external_urls").get("spotify").getAsString()
             );
         }
+
+        public static Playlist fromJsonReader(JsonReader reader) throws IOException {
+            String id = null;
+            String name = null;
+            String webUrl = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = reader.nextString();
+                    case "name" -> name = reader.nextString();
+                    case "external_urls" -> webUrl = readSpotifyUrl(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return new Playlist(id, name, webUrl);
+        }
     }
 
     public record Album(String id, String name, String webUrl, Artist[] artists) {
+        private static final String WEB_URL_PREFIX = "https://open.spotify.com/album/";
+
+        public Album {
+            webUrl = isDerivedWebUrl(WEB_URL_PREFIX, id, webUrl) ? null : webUrl;
+        }
+
+        @Override
+        public String webUrl() {
+            return deriveWebUrl(WEB_URL_PREFIX, id, webUrl);
+        }
+
+        String storedWebUrl() {
+            return webUrl;
+        }
+
         public static Album fromJsonObject(JsonObject jsonObject) {
             var artists = jsonObject.getAsJsonArray("artists")
                     .asList().stream()
@@ -41,6 +127,33 @@ public class SpotifyService {
                     artists
             );
         }
+
+        public static Album fromJsonReader(JsonReader reader) throws IOException {
+            String id = null;
+            String name = null;
+            String webUrl = null;
+            List<Artist> artists = new ArrayList<>();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = reader.nextString();
+                    case "name" -> name = reader.nextString();
+                    case "external_urls" -> webUrl = readSpotifyUrl(reader);
+                    case "artists" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            artists.add(Artist.fromJsonReader(reader));
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return new Album(id, name, webUrl, artists.toArray(Artist[]::new));
+        }
     }
 
     public record Artist(String id, String name) {
@@ -50,6 +163,23 @@ public class SpotifyService {
                     jsonObject.get("name").getAsString()
             );
         }
+
+        public static Artist fromJsonReader(JsonReader reader) throws IOException {
+            String id = null;
+            String name = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = reader.nextString();
+                    case "name" -> name = reader.nextString();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return new Artist(id, name);
+        }
     }
 
     public record Category(String id, String name) {
@@ -59,150 +189,986 @@ public class SpotifyService {
                     jsonObject.get("name").getAsString()
             );
         }
+
+        public static Category fromJsonReader(JsonReader reader) throws IOException {
+            String id = null;
+            String name = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = reader.nextString();
+                    case "name" -> name = reader.nextString();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return new Category(id, name);
+        }
+    }
+
+    private static boolean isDerivedWebUrl(String prefix, String id, String webUrl) {
+        return id != null &&
+                webUrl != null &&
+                webUrl.length() == prefix.length() + id.length() &&
+                webUrl.startsWith(prefix) &&
+                webUrl.endsWith(id);
+    }
+
+    private static String deriveWebUrl(String prefix, String id, String webUrl) {
+        if (webUrl != null || id == null) {
+            return webUrl;
+        }
+        return prefix + id;
     }
 
+    public record SyncResult(List<Album> added, List<Album> albums) {}
+
+    public record ArtistAdvice(Artist artist, List<ArtistGraph.Recommendation> similarArtists) {}
+
     public static class ResponseError extends RuntimeException {
         ResponseError(String error) {
             super(error);
         }
     }
 
+    private record InFlightKey(URI uri, String fieldName) {}
+
+    private static class InFlightRequest<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        volatile CompletableFuture<HttpResponse<InputStream>> scheduled;
+        volatile boolean abandoned = false;
+        // changed only inside inFlightRequests.compute, which serializes updates of a key
+        int subscribers = 0;
+    }
+
+    private static class UnauthorizedError extends ResponseError {
+        private final String rejectedAccessToken;
+
+        UnauthorizedError(String rejectedAccessToken) {
+            super("Access token was rejected");
+            this.rejectedAccessToken = rejectedAccessToken;
+        }
+    }
+
     private final URI apiUrl;
-    private final SpotifyAuth.AccessTokenInfo accessTokenInfo;
-    private final HttpClient client;
+    private final TokenManager tokenManager;
+    private final HttpTransport transport;
+    private final ExecutorService executor;
+    private final RequestScheduler requestScheduler;
+    private final ResponseCache responseCache;
+    private final DiskCache diskCache;
+    private final CategoryIndex categoryIndex;
+    private final ConcurrentMap<InFlightKey, InFlightRequest<?>> inFlightRequests = new ConcurrentHashMap<>();
+    private final int crawlParallelism;
+    private final Catalog catalog = new Catalog();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final ArtistGraph artistGraph = new ArtistGraph();
+    private final JsonDecoder<Page<Album>> albumPageDecoder =
+            reader -> indexAlbums(Page.fromJsonReader(reader, Album::fromJsonReader));
+    private final JsonDecoder<Page<Playlist>> playlistPageDecoder =
+            reader -> indexPlaylists(Page.fromJsonReader(reader, Playlist::fromJsonReader));
+    private final SeenIdSet seenNewReleases;
+    private List<Album> syncedNewReleases = List.of();
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
 
     public SpotifyService(String apiUrl, SpotifyAuth.AccessTokenInfo accessTokenInfo) {
+        this(apiUrl, accessTokenInfo, ServiceOptions.defaults());
+    }
+
+    public SpotifyService(String apiUrl, SpotifyAuth.AccessTokenInfo accessTokenInfo, ServiceOptions options) {
+        this(apiUrl, TokenManager.of(accessTokenInfo), options);
+    }
+
+    public SpotifyService(String apiUrl, TokenManager tokenManager, ServiceOptions options) {
+        this(apiUrl, tokenManager, options, new HttpTransport(options));
+    }
+
+    public SpotifyService(String apiUrl, TokenManager tokenManager, ServiceOptions options, HttpTransport transport) {
         this.apiUrl = URI.create(apiUrl == null ? DEFAULT_API_URL : apiUrl);
-        this.accessTokenInfo = accessTokenInfo;
-        this.client = HttpClient.newHttpClient();
+        this.tokenManager = tokenManager;
+        this.transport = transport;
+        this.executor = transport.executor();
+        this.requestScheduler = new RequestScheduler(
+                transport.client(),
+                options.maxConcurrency(),
+                options.rateLimit(),
+                options.maxRetries(),
+                options.hedgeBudgetPercent(),
+                options.hedgeDelayMillis()
+        );
+        this.responseCache = new ResponseCache(
+                options.cacheSizeMb() * 1024L * 1024L,
+                options.cacheTtlSeconds() * 1000L
+        );
+        this.diskCache = DiskCache.open(options.diskCacheDir(), options.diskCacheSizeMb() * 1024L * 1024L);
+        this.crawlParallelism = options.crawlParallelism();
+        this.seenNewReleases = SeenIdSet.open(
+                options.diskCacheDir() == null ? null : Path.of(options.diskCacheDir(), SEEN_NEW_RELEASES_FILE_NAME)
+        );
+        this.categoryIndex = new CategoryIndex(options.categoryIndexTtlSeconds() * 1000L, executor);
+    }
+
+    @Override
+    public void close() {
+        tokenManager.close();
+        requestScheduler.close();
+        seenNewReleases.save();
+        diskCache.close();
+    }
+
+    public void getFeatured(Consumer<List<Playlist>> pageConsumer) {
+        forEachPage("/v1/browse/featured-playlists", "playlists", playlistPageDecoder, pageConsumer);
+    }
+
+    public void getNewReleases(Consumer<List<Album>> pageConsumer) {
+        forEachPage("/v1/browse/new-releases", "albums", albumPageDecoder, pageConsumer);
+    }
+
+    public void getTopCategories(Consumer<List<Category>> pageConsumer) {
+        forEachPage("/v1/browse/categories", "categories", CATEGORY_PAGE_DECODER, pageConsumer);
+    }
+
+    public void getCategoryPlaylistsById(String categoryId, Consumer<List<Playlist>> pageConsumer) {
+        forEachPage(getCategoryPlaylistsPath(categoryId), "playlists", playlistPageDecoder, pageConsumer);
     }
 
     public List<Playlist> getFeatured() {
-        return getPaginatedItems("/v1/browse/featured-playlists", "playlists")
-                .stream()
-                .map(Playlist::fromJsonObject)
-                .toList();
+        return getPaginatedItems(
+                "/v1/browse/featured-playlists",
+                "playlists",
+                playlistPageDecoder,
+                CompactPlaylistList::new
+        );
     }
 
     public List<Album> getNewReleases() {
-        return getPaginatedItems("/v1/browse/new-releases", "albums")
-                .stream()
-                .map(Album::fromJsonObject)
-                .toList();
+        return getPaginatedItems(
+                "/v1/browse/new-releases",
+                "albums",
+                albumPageDecoder,
+                () -> new CompactAlbumList(catalog)
+        );
     }
 
     public List<Category> getTopCategories() {
-        return getPaginatedItems("/v1/browse/categories", "categories")
-                .stream()
-                .map(Category::fromJsonObject)
-                .toList();
+        return getPaginatedItems("/v1/browse/categories", "categories", CATEGORY_PAGE_DECODER, ArrayList::new);
+    }
+
+    public Optional<Category> findCategory(String categoryNameOrId) {
+        return categoryIndex.find(categoryNameOrId, this::getTopCategories);
+    }
+
+    public Optional<List<Playlist>> getCategoryPlaylists(String categoryNameOrId) {
+        return findCategory(categoryNameOrId).map(category -> getCategoryPlaylistsById(category.id()));
+    }
+
+    public List<Playlist> getCategoryPlaylistsById(String categoryId) {
+        return getPaginatedItems(
+                getCategoryPlaylistsPath(categoryId),
+                "playlists",
+                playlistPageDecoder,
+                CompactPlaylistList::new
+        );
+    }
+
+    public CompletableFuture<List<Playlist>> getFeaturedAsync() {
+        return getPaginatedItemsAsync(
+                "/v1/browse/featured-playlists",
+                "playlists",
+                playlistPageDecoder,
+                CompactPlaylistList::new
+        );
+    }
+
+    public CompletableFuture<List<Album>> getNewReleasesAsync() {
+        return getPaginatedItemsAsync(
+                "/v1/browse/new-releases",
+                "albums",
+                albumPageDecoder,
+                () -> new CompactAlbumList(catalog)
+        );
+    }
+
+    public CompletableFuture<List<Category>> getTopCategoriesAsync() {
+        return getPaginatedItemsAsync("/v1/browse/categories", "categories", CATEGORY_PAGE_DECODER, ArrayList::new);
+    }
+
+    public CompletableFuture<Optional<List<Playlist>>> getCategoryPlaylistsAsync(String categoryNameOrId) {
+        return CompletableFuture
+                .supplyAsync(() -> findCategory(categoryNameOrId), executor)
+                .thenCompose(category -> category.isEmpty() ?
+                        CompletableFuture.completedFuture(Optional.empty()) :
+                        getCategoryPlaylistsByIdAsync(category.get().id()).thenApply(Optional::of)
+                );
+    }
+
+    public CompletableFuture<List<Playlist>> getCategoryPlaylistsByIdAsync(String categoryId) {
+        return getPaginatedItemsAsync(
+                getCategoryPlaylistsPath(categoryId),
+                "playlists",
+                playlistPageDecoder,
+                CompactPlaylistList::new
+        );
     }
 
-    public Optional<List<Playlist>> getCategoryPlaylists(String categoryName) {
-        var categories = getTopCategories();
-        var targetCategory = categories.stream()
-                .filter(category -> category.name().equals(categoryName))
-                .findFirst();
+    public void getAllCategoryPlaylists(BiConsumer<Category, List<Playlist>> pageConsumer) {
+        joinResponse(getAllCategoryPlaylistsAsync(crawlParallelism, pageConsumer));
+    }
 
-        if (targetCategory.isEmpty()) {
-            return Optional.empty();
+    public CompletableFuture<Void> getAllCategoryPlaylistsAsync(
+            int parallelism,
+            BiConsumer<Category, List<Playlist>> pageConsumer
+    )
+    {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
         }
+        Set<String> seenPlaylistIds = ConcurrentHashMap.newKeySet();
+        Object consumerLock = new Object();
+        BiConsumer<Category, List<Playlist>> uniquePageConsumer = (category, playlists) -> {
+            List<Playlist> unique = new ArrayList<>(playlists.size());
+            for (var playlist : playlists) {
+                if (seenPlaylistIds.add(playlist.id())) {
+                    unique.add(playlist);
+                }
+            }
+            if (unique.isEmpty()) {
+                return;
+            }
+            synchronized (consumerLock) {
+                pageConsumer.accept(category, unique);
+            }
+        };
 
-        String path = "/v1/browse/categories/%s/playlists".formatted(targetCategory.orElseThrow().id());
-        return Optional.of(getPaginatedItems(path, "playlists")
-                .stream()
-                .map(Playlist::fromJsonObject)
-                .toList());
+        return getTopCategoriesAsync().thenCompose(categories -> {
+            Queue<Category> pending = new ConcurrentLinkedQueue<>(categories);
+            List<CompletableFuture<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < Math.min(parallelism, categories.size()); i++) {
+                workers.add(crawlCategoryPlaylists(pending, uniquePageConsumer));
+            }
+            return CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new));
+        });
     }
 
-    private List<JsonObject> getPaginatedItems(String path, String itemsName) {
-        return getPaginatedItems(
-                path,
-                response -> response.getAsJsonObject(itemsName).getAsJsonArray("items"),
-                response -> {
-                    var nextPageElem = response.getAsJsonObject(itemsName).get("next");
-                    return Optional.ofNullable(nextPageElem.isJsonNull() ? null : nextPageElem.getAsString());
+    private CompletableFuture<Void> crawlCategoryPlaylists(
+            Queue<Category> pending,
+            BiConsumer<Category, List<Playlist>> pageConsumer
+    )
+    {
+        var category = pending.poll();
+        if (category == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return forEachPageAsync(
+                getCategoryPlaylistsPath(category.id()),
+                "playlists",
+                playlistPageDecoder,
+                playlists -> pageConsumer.accept(category, playlists)
+        )
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        pending.clear();
+                    }
+                })
+                .thenCompose(ignored -> crawlCategoryPlaylists(pending, pageConsumer));
+    }
+
+    public synchronized SyncResult syncNewReleases() {
+        var pageDecoder = albumPageDecoder;
+        List<Album> added = new ArrayList<>();
+        var path = getFirstPagePath("/v1/browse/new-releases");
+        while (path != null) {
+            var page = sendGetRequest(path, "albums", pageDecoder, true);
+            boolean hasUnseen = false;
+            for (var album : page.items()) {
+                if (!seenNewReleases.contains(album.id())) {
+                    added.add(album);
+                    hasUnseen = true;
                 }
+            }
+            path = hasUnseen ? page.next() : null;
+        }
+
+        if (!added.isEmpty()) {
+            seenNewReleases.addAll(added.stream().map(Album::id).toList());
+            seenNewReleases.save();
+        }
+        List<Album> albums = new CompactAlbumList(catalog);
+        albums.addAll(added);
+        albums.addAll(syncedNewReleases);
+        syncedNewReleases = albums;
+        return new SyncResult(Collections.unmodifiableList(added), Collections.unmodifiableList(albums));
+    }
+
+    public List<SearchIndex.Document> search(String query) {
+        return searchIndex.search(query);
+    }
+
+    public int getSearchIndexSize() {
+        return searchIndex.size();
+    }
+
+    public int getArtistGraphSize() {
+        return artistGraph.getArtistCount();
+    }
+
+    public Optional<ArtistAdvice> advise(String artistName, int limit) {
+        for (var document : searchIndex.search(artistName)) {
+            if (document.kind() == SearchIndex.Kind.ARTIST) {
+                return Optional.of(new ArtistAdvice(
+                        new Artist(document.id(), document.title()),
+                        artistGraph.getSimilarArtists(document.id(), limit)
+                ));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public static String getArtistWebUrl(String artistId) {
+        return ARTIST_WEB_URL_PREFIX + artistId;
+    }
+
+    public static String getWebUrl(SearchIndex.Document document) {
+        return switch (document.kind()) {
+            case ALBUM -> Album.WEB_URL_PREFIX + document.id();
+            case ARTIST -> getArtistWebUrl(document.id());
+            case PLAYLIST -> Playlist.WEB_URL_PREFIX + document.id();
+        };
+    }
+
+    public Flow.Publisher<Playlist> getFeaturedPublisher() {
+        return getPublisher("/v1/browse/featured-playlists", "playlists", playlistPageDecoder);
+    }
+
+    public Flow.Publisher<Album> getNewReleasesPublisher() {
+        return getPublisher("/v1/browse/new-releases", "albums", albumPageDecoder);
+    }
+
+    public Flow.Publisher<Category> getTopCategoriesPublisher() {
+        return getPublisher("/v1/browse/categories", "categories", CATEGORY_PAGE_DECODER);
+    }
+
+    public Flow.Publisher<Playlist> getCategoryPlaylistsPublisherById(String categoryId) {
+        return getPublisher(getCategoryPlaylistsPath(categoryId), "playlists", playlistPageDecoder);
+    }
+
+    public PagedSource<Playlist> getFeaturedSource() {
+        return getPagedSource("/v1/browse/featured-playlists", "playlists", playlistPageDecoder);
+    }
+
+    public PagedSource<Album> getNewReleasesSource() {
+        return getPagedSource("/v1/browse/new-releases", "albums", albumPageDecoder);
+    }
+
+    public PagedSource<Category> getTopCategoriesSource() {
+        return getPagedSource("/v1/browse/categories", "categories", CATEGORY_PAGE_DECODER);
+    }
+
+    public Optional<PagedSource<Playlist>> getCategoryPlaylistsSource(String categoryNameOrId) {
+        return findCategory(categoryNameOrId).map(category -> getCategoryPlaylistsSourceById(category.id()));
+    }
+
+    public PagedSource<Playlist> getCategoryPlaylistsSourceById(String categoryId) {
+        return getPagedSource(getCategoryPlaylistsPath(categoryId), "playlists", playlistPageDecoder);
+    }
+
+    private Page<Album> indexAlbums(Page<Album> page) {
+        var added = searchIndex.addAll(
+                SearchIndex.Kind.ALBUM,
+                page.items(),
+                Album::id,
+                Album::name,
+                album -> Arrays.stream(album.artists()).map(Artist::name).toArray(String[]::new)
+        );
+        for (var album : added) {
+            searchIndex.addAll(SearchIndex.Kind.ARTIST, Arrays.asList(album.artists()), Artist::id, Artist::name, artist -> null);
+            var artists = album.artists();
+            var artistIds = new String[artists.length];
+            var artistNames = new String[artists.length];
+            for (int i = 0; i < artists.length; i++) {
+                artistIds[i] = artists[i].id();
+                artistNames[i] = artists[i].name();
+            }
+            artistGraph.addAlbum(album.id(), artistIds, artistNames);
+        }
+        return page;
+    }
+
+    private Page<Playlist> indexPlaylists(Page<Playlist> page) {
+        searchIndex.addAll(SearchIndex.Kind.PLAYLIST, page.items(), Playlist::id, Playlist::name, playlist -> null);
+        return page;
+    }
+
+    private static String getCategoryPlaylistsPath(String categoryId) {
+        return "/v1/browse/categories/%s/playlists".formatted(URLEncoder.encode(categoryId, StandardCharsets.UTF_8));
+    }
+
+    private <E> PagedSource<E> getPagedSource(String path, String itemsName, JsonDecoder<Page<E>> pageDecoder) {
+        return new RemotePagedSource<>(
+                (offset, limit) -> sendGetRequest(
+                        "%s?offset=%d&limit=%d".formatted(path, offset, limit),
+                        itemsName,
+                        pageDecoder
+                ),
+                REMOTE_PAGE_LIMIT,
+                LOADED_PAGES_WINDOW
         );
     }
 
-    private List<JsonObject> getPaginatedItems(
+    private <E> Flow.Publisher<E> getPublisher(String path, String itemsName, JsonDecoder<Page<E>> pageDecoder) {
+        return new PagePublisher<>(
+                getFirstPagePath(path),
+                pagePath -> sendGetRequestAsync(pagePath, itemsName, pageDecoder)
+        );
+    }
+
+    private <E> List<E> getPaginatedItems(
             String path,
-            Function<JsonObject, JsonArray> itemsSelector,
-            Function<JsonObject, Optional<String>> nextPageSelector
+            String itemsName,
+            JsonDecoder<Page<E>> pageDecoder,
+            Supplier<List<E>> listFactory
     )
     {
-        List<JsonObject> items = new ArrayList<>();
-        JsonObject response;
-        while (true) {
-            response = sendGetRequest(path);
-            items.addAll(itemsSelector.apply(response)
-                    .asList().stream()
-                    .map(JsonElement::getAsJsonObject)
-                    .toList()
-            );
+        List<E> items = listFactory.get();
+        forEachPage(path, itemsName, pageDecoder, items::addAll);
+        return items;
+    }
+
+    private <E> CompletableFuture<List<E>> getPaginatedItemsAsync(
+            String path,
+            String itemsName,
+            JsonDecoder<Page<E>> pageDecoder,
+            Supplier<List<E>> listFactory
+    )
+    {
+        return sendGetRequestAsync(getFirstPagePath(path), itemsName, pageDecoder).thenCompose(firstPage -> {
+            if (!firstPage.hasOffsets()) {
+                List<E> items = listFactory.get();
+                return followNextPagesAsync(firstPage, itemsName, pageDecoder, items::addAll)
+                        .thenApply(ignored -> items);
+            }
+
+            var pages = sendRemainingPagesAsync(path, firstPage, itemsName, pageDecoder);
+            return allOrCancel(pages).thenApply(ignored -> {
+                List<E> items = listFactory.get();
+                items.addAll(firstPage.items());
+                pages.forEach(page -> items.addAll(page.join().items()));
+                return items;
+            });
+        });
+    }
+
+    private <E> CompletableFuture<Void> forEachPageAsync(
+            String path,
+            String itemsName,
+            JsonDecoder<Page<E>> pageDecoder,
+            Consumer<List<E>> pageConsumer
+    )
+    {
+        return sendGetRequestAsync(getFirstPagePath(path), itemsName, pageDecoder).thenCompose(firstPage -> {
+            if (!firstPage.hasOffsets()) {
+                return followNextPagesAsync(firstPage, itemsName, pageDecoder, pageConsumer);
+            }
 
-            var nextPagePath = nextPageSelector.apply(response);
-            if (nextPagePath.isEmpty()) {
-                break;
+            pageConsumer.accept(firstPage.items());
+            var pages = sendRemainingPagesAsync(path, firstPage, itemsName, pageDecoder);
+            List<CompletableFuture<Void>> consumed = new ArrayList<>(pages.size());
+            for (var page : pages) {
+                consumed.add(page.thenAccept(loaded -> pageConsumer.accept(loaded.items())));
             }
-            path = nextPagePath.get();
+            return allOrCancel(consumed).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    pages.forEach(page -> page.cancel(false));
+                }
+            });
+        });
+    }
+
+    private <E> CompletableFuture<Void> followNextPagesAsync(
+            Page<E> page,
+            String itemsName,
+            JsonDecoder<Page<E>> pageDecoder,
+            Consumer<List<E>> pageConsumer
+    )
+    {
+        pageConsumer.accept(page.items());
+        if (page.next() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return sendGetRequestAsync(page.next(), itemsName, pageDecoder)
+                .thenCompose(next -> followNextPagesAsync(next, itemsName, pageDecoder, pageConsumer));
+    }
+
+    private static <T> CompletableFuture<Void> allOrCancel(List<CompletableFuture<T>> futures) {
+        var result = new CompletableFuture<Void>();
+        for (var future : futures) {
+            future.whenComplete((ignored, e) -> {
+                if (e != null && result.completeExceptionally(e)) {
+                    futures.forEach(other -> other.cancel(false));
+                }
+            });
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenRun(() -> result.complete(null));
+        return result;
+    }
+
+    private <E> List<CompletableFuture<Page<E>>> sendRemainingPagesAsync(
+            String path,
+            Page<E> firstPage,
+            String itemsName,
+            JsonDecoder<Page<E>> pageDecoder
+    )
+    {
+        List<CompletableFuture<Page<E>>> pages = new ArrayList<>();
+        int limit = firstPage.limit();
+        for (int offset = firstPage.offset() + limit; offset < firstPage.total(); offset += limit) {
+            var pagePath = "%s?offset=%d&limit=%d".formatted(URI.create(path).getPath(), offset, limit);
+            pages.add(sendGetRequestAsync(pagePath, itemsName, pageDecoder));
+        }
+        return pages;
+    }
+
+    private static String getFirstPagePath(String path) {
+        if (URI.create(path).getQuery() != null) {
+            return path;
+        }
+        return "%s?offset=0&limit=%d".formatted(path, REMOTE_PAGE_LIMIT);
+    }
+
+    private <E> void forEachPage(
+            String path,
+            String itemsName,
+            JsonDecoder<Page<E>> pageDecoder,
+            Consumer<List<E>> pageConsumer
+    )
+    {
+        var firstPage = sendGetRequest(getFirstPagePath(path), itemsName, pageDecoder);
+        pageConsumer.accept(firstPage.items());
+
+        if (!firstPage.hasOffsets()) {
+            var page = firstPage;
+            while (page.next() != null) {
+                page = sendGetRequest(page.next(), itemsName, pageDecoder);
+                pageConsumer.accept(page.items());
+            }
+            return;
+        }
+
+        var pages = sendRemainingPagesAsync(path, firstPage, itemsName, pageDecoder);
+        try {
+            for (var page : pages) {
+                pageConsumer.accept(joinResponse(page).items());
+            }
+        } catch (RuntimeException e) {
+            pages.forEach(page -> page.cancel(false));
+            throw e;
         }
-        return items;
     }
 
-    private JsonObject sendGetRequest(String path) {
-        var request = createGetRequest(path);
-        HttpResponse<String> response;
+    private static <T> T joinResponse(CompletableFuture<T> response) {
         try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (IOException | InterruptedException e) {
-            System.out.printf("Error while making request %s%n", request);
-            throw new RuntimeException(e);
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private <T> T sendGetRequest(String path, String fieldName, JsonDecoder<T> fieldDecoder) {
+        return sendGetRequest(path, fieldName, fieldDecoder, false);
+    }
+
+    // revalidate skips a fresh cache entry and asks the server, sending the stored etag if there is one
+    private <T> T sendGetRequest(String path, String fieldName, JsonDecoder<T> fieldDecoder, boolean revalidate) {
+        try {
+            return sendAuthorizedGetRequest(path, fieldName, fieldDecoder, revalidate);
+        } catch (UnauthorizedError e) {
+            tokenManager.refresh(e.rejectedAccessToken);
+            return sendAuthorizedGetRequest(path, fieldName, fieldDecoder, revalidate);
         }
+    }
+
+    private <T> CompletableFuture<T> sendGetRequestAsync(String path, String fieldName, JsonDecoder<T> fieldDecoder) {
+        AtomicReference<CompletableFuture<T>> attempt = new AtomicReference<>();
+        attempt.set(sendAuthorizedGetRequestAsync(path, fieldName, fieldDecoder));
+        var result = attempt.get().exceptionallyCompose(e -> {
+            if (!(e.getCause() instanceof UnauthorizedError unauthorized)) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return CompletableFuture
+                    .runAsync(() -> tokenManager.refresh(unauthorized.rejectedAccessToken), executor)
+                    .thenCompose(refreshed -> {
+                        attempt.set(sendAuthorizedGetRequestAsync(path, fieldName, fieldDecoder));
+                        return attempt.get();
+                    });
+        });
+        // dependent stages don't pass cancellation upstream, so hand it to the attempt that is running
+        result.whenComplete((ignored, e) -> {
+            if (result.isCancelled()) {
+                attempt.get().cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private <T> T sendAuthorizedGetRequest(
+            String path,
+            String fieldName,
+            JsonDecoder<T> fieldDecoder,
+            boolean revalidate
+    )
+    {
+        return joinResponse(sendAuthorizedGetRequestAsync(path, fieldName, fieldDecoder, revalidate));
+    }
+
+    private <T> CompletableFuture<T> sendAuthorizedGetRequestAsync(
+            String path,
+            String fieldName,
+            JsonDecoder<T> fieldDecoder
+    )
+    {
+        return sendAuthorizedGetRequestAsync(path, fieldName, fieldDecoder, false);
+    }
 
-        boolean isSuccess = response.statusCode() >= 200 && response.statusCode() <= 299;
-        boolean isClientError = response.statusCode() >= 400 && response.statusCode() <= 499;
+    private <T> CompletableFuture<T> sendAuthorizedGetRequestAsync(
+            String path,
+            String fieldName,
+            JsonDecoder<T> fieldDecoder,
+            boolean revalidate
+    )
+    {
+        var uri = resolveUri(path);
+        var metrics = getEndpointMetrics(uri);
+        var cached = getCachedEntry(uri);
+        // a stale entry restored from disk is still served at once, a warm start must not wait for the network
+        if (cached != null && (cached.isFresh() || cached.restored()) && !revalidate) {
+            metrics.recordCacheHit();
+            if (!cached.isFresh()) {
+                revalidateInBackground(uri, metrics, cached, fieldName, fieldDecoder);
+            }
+            return CompletableFuture.completedFuture(decodeResponseBody(
+                    new ByteArrayInputStream(cached.body()),
+                    fieldName,
+                    fieldDecoder,
+                    false,
+                    metrics
+            ));
+        }
+        return fetch(uri, metrics, cached, fieldName, fieldDecoder);
+    }
+
+    private <T> void revalidateInBackground(
+            URI uri,
+            EndpointMetrics metrics,
+            ResponseCache.Entry cached,
+            String fieldName,
+            JsonDecoder<T> fieldDecoder
+    )
+    {
+        // a 200 or 304 replaces the restored entry, after a failure the stale one stays and the next read retries
+        fetch(uri, metrics, cached, fieldName, fieldDecoder).whenComplete((ignored, e) -> {
+            if (e != null) {
+                var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                System.err.printf("Can't revalidate cached %s: %s%n", uri, cause.getMessage());
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> fetch(
+            URI uri,
+            EndpointMetrics metrics,
+            ResponseCache.Entry cached,
+            String fieldName,
+            JsonDecoder<T> fieldDecoder
+    )
+    {
+        var key = new InFlightKey(uri, fieldName);
+        var created = new InFlightRequest<T>();
+        @SuppressWarnings("unchecked")
+        var inFlight = (InFlightRequest<T>) inFlightRequests.compute(key, (ignored, existing) -> {
+            var request = existing == null ? created : existing;
+            request.subscribers++;
+            return request;
+        });
+        var subscription = subscribe(key, inFlight);
+        if (inFlight != created) {
+            metrics.recordCoalesced();
+            return subscription;
+        }
+
+        var scheduled = requestScheduler.send(() -> createGetRequest(uri, cached), metrics);
+        created.scheduled = scheduled;
+        if (created.abandoned) {
+            scheduled.cancel(false);
+        }
+        scheduled
+                .handle((response, e) -> {
+                    if (e != null) {
+                        if (!created.abandoned) {
+                            System.err.printf("Error while making request %s%n", uri);
+                        }
+                        throw new RuntimeException(e);
+                    }
+                    return handleResponse(uri, metrics, cached, response, fieldName, fieldDecoder);
+                })
+                .whenComplete((result, e) -> {
+                    inFlightRequests.remove(key, created);
+                    if (e != null) {
+                        created.result.completeExceptionally(e);
+                    } else {
+                        created.result.complete(result);
+                    }
+                });
+        return subscription;
+    }
+
+    private <T> CompletableFuture<T> subscribe(InFlightKey key, InFlightRequest<T> inFlight) {
+        var subscription = inFlight.result.copy();
+        subscription.whenComplete((ignored, e) -> {
+            if (subscription.isCancelled()) {
+                unsubscribe(key, inFlight);
+            }
+        });
+        return subscription;
+    }
+
+    private void unsubscribe(InFlightKey key, InFlightRequest<?> inFlight) {
+        boolean[] isLast = {false};
+        inFlightRequests.computeIfPresent(key, (ignored, request) -> {
+            if (request != inFlight || --request.subscribers > 0) {
+                return request;
+            }
+            isLast[0] = true;
+            return null;
+        });
+        if (!isLast[0]) {
+            return;
+        }
+        // nobody waits for the response anymore, drop the request if the scheduler hasn't answered yet
+        inFlight.abandoned = true;
+        var scheduled = inFlight.scheduled;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        inFlight.result.cancel(false);
+    }
+
+    private ResponseCache.Entry getCachedEntry(URI uri) {
+        var cached = responseCache.get(uri);
+        if (cached != null) {
+            return cached;
+        }
+
+        var stored = diskCache.get(uri);
+        if (stored == null) {
+            return null;
+        }
+        return responseCache.restore(uri, stored.body(), stored.etag(), stored.storedAtMillis());
+    }
+
+    private <T> T handleResponse(
+            URI uri,
+            EndpointMetrics metrics,
+            ResponseCache.Entry cached,
+            HttpResponse<InputStream> response,
+            String fieldName,
+            JsonDecoder<T> fieldDecoder
+    )
+    {
+        int statusCode = response.statusCode();
+        if (statusCode == 401 && tokenManager.canRefresh()) {
+            closeBody(response.body());
+            throw new UnauthorizedError(getAccessToken(response.request()));
+        }
+        if (statusCode == 304 && cached != null) {
+            closeBody(response.body());
+            metrics.recordCacheHit();
+            var revalidated = responseCache.revalidate(uri, cached, response.headers());
+            diskCache.put(uri, revalidated.body(), revalidated.etag());
+            return decodeResponseBody(
+                    new ByteArrayInputStream(revalidated.body()),
+                    fieldName,
+                    fieldDecoder,
+                    false,
+                    metrics
+            );
+        }
+
+        boolean isSuccess = statusCode >= 200 && statusCode <= 299;
+        boolean isClientError = statusCode >= 400 && statusCode <= 499;
 
         if (!(isSuccess || isClientError)) {
             // seems like 5xx or unexpected 3xx
-            throw new RuntimeException(response.body());
+            throw new RuntimeException(readBody(HttpTransport.decodeBody(response.body(), response.headers())));
         }
 
-        var jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
+        var responseBody = HttpTransport.decodeBody(
+                new CountingInputStream(response.body(), metrics::recordBytesReceived),
+                response.headers()
+        );
+        if (!isSuccess || !responseCache.isCacheable(response.headers())) {
+            try (var body = responseBody) {
+                return decodeResponseBody(body, fieldName, fieldDecoder, isClientError, metrics);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
-        if (isClientError || jsonResponse.has("error")) {
-            var errorDescription = jsonResponse.getAsJsonObject("error");
-            var errorMessage = errorDescription.get("message").getAsString();
-            throw new ResponseError(errorMessage);
+        T result;
+        byte[] bodyBytes;
+        try (var body = new TeeInputStream(responseBody)) {
+            result = decodeResponseBody(body, fieldName, fieldDecoder, false, metrics);
+            bodyBytes = body.readRemainingAndGetCopy();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        var entry = responseCache.put(uri, bodyBytes, response.headers());
+        if (entry != null) {
+            diskCache.put(uri, entry.body(), entry.etag());
+        }
+        return result;
+    }
 
-        return jsonResponse;
+    private static <T> T decodeResponseBody(
+            InputStream body,
+            String fieldName,
+            JsonDecoder<T> fieldDecoder,
+            boolean isClientError,
+            EndpointMetrics metrics
+    )
+    {
+        long startedAt = System.nanoTime();
+        try {
+            return decodeResponseBody(body, fieldName, fieldDecoder, isClientError);
+        } finally {
+            metrics.recordDecodeTime(System.nanoTime() - startedAt);
+        }
     }
 
-    private HttpRequest createGetRequest(String path) {
-        URI uri = URI.create(path);
+    private static <T> T decodeResponseBody(
+            InputStream body,
+            String fieldName,
+            JsonDecoder<T> fieldDecoder,
+            boolean isClientError
+    )
+    {
+        T result = null;
+        try {
+            var reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            reader.beginObject();
+            while (reader.hasNext()) {
+                var name = reader.nextName();
+                if (name.equals("error")) {
+                    throw new ResponseError(readErrorMessage(reader));
+                } else if (name.equals(fieldName) && !isClientError) {
+                    result = fieldDecoder.decode(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException e) {
+            throw new RuntimeException("Malformed response: %s".formatted(e.getMessage()), e);
+        }
 
-        if (uri.getHost() == null) {
-            try {
-                uri = new URI(
-                        apiUrl.getScheme(),
-                        apiUrl.getUserInfo(),
-                        apiUrl.getHost(),
-                        apiUrl.getPort(),
-                        uri.getPath(),
-                        uri.getQuery(),
-                        uri.getFragment()
-                );
-            } catch (URISyntaxException e) {
-                throw new RuntimeException(e);
+        if (isClientError) {
+            throw new ResponseError("Unexpected client error");
+        }
+        if (fieldName != null && result == null) {
+            throw new RuntimeException("Response doesn't contain %s".formatted(fieldName));
+        }
+        return result;
+    }
+
+    private static String readErrorMessage(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return reader.nextString();
+        }
+
+        String message = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("message")) {
+                message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return message;
+    }
+
+    private static String readSpotifyUrl(JsonReader reader) throws IOException {
+        String url = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("spotify")) {
+                url = reader.nextString();
+            } else {
+                reader.skipValue();
             }
         }
+        reader.endObject();
+        return url;
+    }
+
+    private static String getAccessToken(HttpRequest request) {
+        return request.headers().firstValue("Authorization").orElse("").replaceFirst("^Bearer ", "");
+    }
 
-        return HttpRequest.newBuilder()
+    private static String readBody(InputStream body) {
+        try (body) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeBody(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private EndpointMetrics getEndpointMetrics(URI uri) {
+        var path = uri.getPath();
+        var endpoint = path.startsWith(BROWSE_PATH_PREFIX) ? path.substring(BROWSE_PATH_PREFIX.length()) : path;
+        return metricsRegistry.getEndpoint(CATEGORY_ID_PATTERN.matcher(endpoint).replaceFirst("categories/{id}/"));
+    }
+
+    private URI resolveUri(String path) {
+        URI uri = URI.create(path);
+        if (uri.getHost() != null) {
+            return uri;
+        }
+
+        try {
+            return new URI(
+                    apiUrl.getScheme(),
+                    apiUrl.getUserInfo(),
+                    apiUrl.getHost(),
+                    apiUrl.getPort(),
+                    uri.getPath(),
+                    uri.getQuery(),
+                    uri.getFragment()
+            );
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private HttpRequest createGetRequest(URI uri, ResponseCache.Entry cached) {
+        var builder = transport.newRequest(uri)
                 .GET()
-                .uri(uri)
-                .header("Authorization", "Bearer %s".formatted(accessTokenInfo.accessToken()))
-                .build();
+                .header("Authorization", "Bearer %s".formatted(tokenManager.getAccessToken()));
+        if (cached != null && cached.etag() != null) {
+            builder.header("If-None-Match", cached.etag());
+        }
+        return builder.build();
     }
 }
@@ -0,0 +1,24 @@
+package krik.java.spotify_api;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class TaskExecutors {
+    private TaskExecutors() {
+    }
+
+    public static ExecutorService newPerTaskExecutor(String threadNamePrefix) {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            var threadCount = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                var thread = new Thread(runnable, threadNamePrefix + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package krik.java.spotify_api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+class TeeInputStream extends FilterInputStream {
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    TeeInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            copy.write(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            copy.write(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && read() >= 0) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    byte[] readRemainingAndGetCopy() throws IOException {
+        transferTo(OutputStream.nullOutputStream());
+        return copy.toByteArray();
+    }
+}
@@ -0,0 +1,104 @@
+package krik.java.spotify_api;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class TokenManager implements AutoCloseable {
+    private static final long REFRESH_MARGIN_MILLIS = 60_000;
+    private static final long REFRESH_RETRY_MILLIS = 30_000;
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "token-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SpotifyAuth auth;
+    private final CredentialsStore credentialsStore;
+    private volatile CredentialsStore.Credentials credentials;
+    private ScheduledFuture<?> scheduledRefresh;
+    private boolean closed = false;
+
+    TokenManager(SpotifyAuth auth, CredentialsStore credentialsStore, CredentialsStore.Credentials credentials) {
+        this.auth = auth;
+        this.credentialsStore = credentialsStore;
+        this.credentials = credentials;
+        scheduleRefresh();
+    }
+
+    public static TokenManager of(SpotifyAuth.AccessTokenInfo accessTokenInfo) {
+        return new TokenManager(null, null, toCredentials(accessTokenInfo, null));
+    }
+
+    // never refreshes here: it runs on the request scheduler's dispatch path, which must not block on HTTP,
+    // an expired token is replaced by the scheduled refresh or by the caller after a 401
+    public String getAccessToken() {
+        return credentials.accessToken();
+    }
+
+    boolean canRefresh() {
+        return auth != null && credentials.refreshToken() != null;
+    }
+
+    synchronized CredentialsStore.Credentials refresh(String rejectedAccessToken) {
+        if (!credentials.accessToken().equals(rejectedAccessToken) || !canRefresh()) {
+            return credentials;
+        }
+
+        var accessTokenInfo = auth.refreshAccessTokenInfo(credentials.refreshToken());
+        credentials = toCredentials(accessTokenInfo, credentials.refreshToken());
+        if (credentialsStore != null) {
+            credentialsStore.save(credentials);
+        }
+        scheduleRefresh();
+        return credentials;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = null;
+        }
+    }
+
+    private synchronized void scheduleRefresh() {
+        if (closed || !canRefresh()) {
+            return;
+        }
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        long expiresIn = Math.max(0, credentials.expiresAtMillis() - System.currentTimeMillis());
+        long delay = Math.max(expiresIn - REFRESH_MARGIN_MILLIS, expiresIn / 2);
+        scheduledRefresh = SCHEDULER.schedule(this::refreshInBackground, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshInBackground() {
+        try {
+            refresh(credentials.accessToken());
+        } catch (RuntimeException e) {
+            System.err.printf("Can't refresh access token: %s%n", e.getMessage());
+            synchronized (this) {
+                if (!closed) {
+                    scheduledRefresh = SCHEDULER.schedule(this::refreshInBackground, REFRESH_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    static CredentialsStore.Credentials toCredentials(
+            SpotifyAuth.AccessTokenInfo accessTokenInfo,
+            String previousRefreshToken
+    )
+    {
+        return new CredentialsStore.Credentials(
+                accessTokenInfo.accessToken(),
+                accessTokenInfo.tokenType(),
+                accessTokenInfo.refreshToken() == null ? previousRefreshToken : accessTokenInfo.refreshToken(),
+                System.currentTimeMillis() + accessTokenInfo.expiresIn() * 1000L
+        );
+    }
+}
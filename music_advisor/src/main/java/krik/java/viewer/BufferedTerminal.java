@@ -0,0 +1,73 @@
+package krik.java.viewer;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BufferedTerminal implements Viewer {
+    private static final int MAX_BUFFERED_CHARS = 8192;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer output;
+    private final StringBuilder buffer = new StringBuilder(MAX_BUFFERED_CHARS);
+    private final Map<String, Template> templates = new HashMap<>();
+    private char[] chars = new char[MAX_BUFFERED_CHARS];
+
+    public BufferedTerminal(PrintStream output) {
+        this.output = new OutputStreamWriter(output);
+    }
+
+    @Override
+    public void showMessage(String message) {
+        buffer.append(message).append(LINE_SEPARATOR);
+        flushIfFull();
+    }
+
+    @Override
+    public void showMessage(String message, Object... args) {
+        Template template;
+        try {
+            template = templates.computeIfAbsent(message, Template::compile);
+        } catch (IllegalArgumentException e) {
+            showMessage(message.formatted(args));
+            return;
+        }
+        showMessage(template, args);
+    }
+
+    @Override
+    public void showMessage(Template template, Object... args) {
+        template.appendTo(buffer, args);
+        buffer.append(LINE_SEPARATOR);
+        flushIfFull();
+    }
+
+    @Override
+    public void flush() {
+        int length = buffer.length();
+        if (length == 0) {
+            return;
+        }
+        if (chars.length < length) {
+            chars = new char[length];
+        }
+        buffer.getChars(0, length, chars, 0);
+        buffer.setLength(0);
+        try {
+            output.write(chars, 0, length);
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flushIfFull() {
+        if (buffer.length() >= MAX_BUFFERED_CHARS) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package krik.java.viewer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+
+public final class Template {
+    private final String[] literals;
+    private final char[] conversions;
+
+    private Template(String[] literals, char[] conversions) {
+        this.literals = literals;
+        this.conversions = conversions;
+    }
+
+    public static Template compile(String format) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder conversions = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            if (i + 1 == format.length()) {
+                throw new IllegalArgumentException("Dangling % in template: " + format);
+            }
+            char conversion = format.charAt(++i);
+            switch (conversion) {
+                case 'n' -> literal.append(System.lineSeparator());
+                case '%' -> literal.append('%');
+                case 's', 'd' -> {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    conversions.append(conversion);
+                }
+                default -> throw new IllegalArgumentException(
+                        "Unsupported conversion %%%c in template: %s".formatted(conversion, format)
+                );
+            }
+        }
+        literals.add(literal.toString());
+
+        return new Template(literals.toArray(String[]::new), conversions.toString().toCharArray());
+    }
+
+    public void appendTo(StringBuilder output, Object... args) {
+        if (args.length < conversions.length) {
+            throw new MissingFormatArgumentException("%" + conversions[args.length]);
+        }
+        for (int i = 0; i < conversions.length; i++) {
+            output.append(literals[i]);
+            var arg = args[i];
+            if (arg instanceof CharSequence charSequence) {
+                output.append(charSequence);
+            } else if (conversions[i] == 'd' && (arg instanceof Integer || arg instanceof Long)) {
+                output.append(((Number) arg).longValue());
+            } else {
+                output.append(arg);
+            }
+        }
+        output.append(literals[conversions.length]);
+    }
+
+    public String format(Object... args) {
+        var output = new StringBuilder();
+        appendTo(output, args);
+        return output.toString();
+    }
+}
@@ -0,0 +1,29 @@
+package krik.java.viewer;
+
+public class TextBuffer implements Viewer {
+    private static final String LINE_SEPARATOR = "\n";
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    @Override
+    public void showMessage(String message) {
+        buffer.append(message).append(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void showMessage(String message, Object... args) {
+        showMessage(message.formatted(args));
+    }
+
+    @Override
+    public void showMessage(Template template, Object... args) {
+        template.appendTo(buffer, args);
+        buffer.append(LINE_SEPARATOR);
+    }
+
+    public String takeText() {
+        var text = buffer.toString();
+        buffer.setLength(0);
+        return text;
+    }
+}
@@ -4,4 +4,10 @@ public interface Viewer {
     void showMessage(String message);
 
     void showMessage(String message, Object... args);
+
+    default void showMessage(Template template, Object... args) {
+        showMessage(template.format(args));
+    }
+
+    default void flush() {}
 }